@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deck of cards for one table.
+ * Cards are ids 0-51 (suit * 13 + type), so a set of cards fits in the
+ * low 52 bits of a long. Names such as "ClubsAce" are only used on the
+ * wire. Discarded cards go to a muck that is shuffled back in when the
+ * stock runs short.
+ * Not thread-safe; a deck belongs to one table.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class Deck {
+
+    /**
+     * Number of cards in a full deck.
+     */
+    public static final int SIZE = 52;
+
+    /**
+     * Returned by {@link #mask(List)} for cards that are unknown or named
+     * twice; no real set of cards uses the top bits.
+     */
+    public static final long INVALID = -1L;
+
+    /**
+     * Card name by id.
+     */
+    private static final String[] NAMES = new String[SIZE];
+
+    /**
+     * Card id by name.
+     */
+    private static final HashMap<String, Integer> IDS = new HashMap<>();
+
+    static {
+        final String[] cardTypes = {"Ace", "Two", "Three", "Four", "Five",
+            "Six", "Seven", "Eight", "Nine", "Ten", "Jack", "Queen", "King"};
+        final String[] suits = {"Clubs", "Hearts", "Diamonds", "Spades"};
+        int id = 0;
+        for (String curSuit : suits) {
+            for (String curType : cardTypes) {
+                NAMES[id] = curSuit + curType;
+                IDS.put(NAMES[id], id);
+                id++;
+            }
+        }
+    }
+
+    /**
+     * Undealt cards; the top of the deck is the end of the array.
+     */
+    private final int[] stock = new int[SIZE];
+
+    /**
+     * Number of undealt cards.
+     */
+    private int stockSize;
+
+    /**
+     * Discarded cards not yet shuffled back in.
+     */
+    private long muck;
+
+    /**
+     * Create a full, unshuffled deck.
+     */
+    public Deck() {
+        for (int j = 0; j < SIZE; j++) {
+            stock[j] = j;
+        }
+        stockSize = SIZE;
+    }
+
+    /**
+     * Shuffle undealt cards the standard 7 times.
+     * Probably unnecessary, but traditional.
+     */
+    public void shuffle() {
+        final int standardShuffle = 7; //rule of thumb: shuffle 7 times
+        ThreadLocalRandom rng = ThreadLocalRandom.current();
+        for (int k = 0; k < standardShuffle; k++) {
+            for (int j = stockSize - 1; j > 0; j--) {
+                int swap = rng.nextInt(j + 1);
+                int card = stock[j];
+                stock[j] = stock[swap];
+                stock[swap] = card;
+            }
+        }
+    }
+
+    /**
+     * Deal a whole round in one go: every seat's cards, one card at a time
+     * around the table as a dealer would, into a caller-supplied buffer.
+     * Seat s gets counts[s] cards, written from out[s * stride]. Either
+     * the whole round is dealt or, if there are not enough cards even after
+     * shuffling in the muck, nothing is.
+     *
+     * @param counts
+     *               cards wanted per seat
+     * @param out
+     *            buffer of at least counts.length * stride cards
+     * @param stride
+     *               buffer slots per seat
+     * @return false if there were not enough cards
+     */
+    public boolean dealRound(final int[] counts, final int[] out,
+            final int stride) {
+        int total = 0, most = 0;
+        for (int count : counts) {
+            total += count;
+            most = Math.max(most, count);
+        }
+        if (total > stockSize && muck != 0) {
+            recycleMuck();
+        }
+        if (total > stockSize) {
+            return false;
+        }
+        for (int k = 0; k < most; k++) {
+            for (int s = 0; s < counts.length; s++) {
+                if (k < counts[s]) {
+                    out[s * stride + k] = stock[--stockSize];
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Put cards in the muck.
+     *
+     * @param cards
+     *              set of cards, as a mask
+     */
+    public void discard(final long cards) {
+        muck |= cards;
+    }
+
+    /**
+     * Report undealt cards.
+     *
+     * @return cards left in stock
+     */
+    public int remaining() {
+        return stockSize;
+    }
+
+    /**
+     * Report name of a card.
+     *
+     * @param card
+     *             card id
+     * @return card name
+     */
+    public static String name(final int card) {
+        return NAMES[card];
+    }
+
+    /**
+     * Report id of a card.
+     *
+     * @param name
+     *             card name
+     * @return card id, or -1 if no such card
+     */
+    public static int id(final String name) {
+        Integer id = IDS.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Build the mask of a set of named cards.
+     *
+     * @param names
+     *              card names
+     * @return mask, or {@link #INVALID} if a name is unknown or repeated
+     */
+    public static long mask(final List<String> names) {
+        long mask = 0;
+        for (String name : names) {
+            int id = id(name);
+            if (id < 0 || (mask & 1L << id) != 0) {
+                return INVALID;
+            }
+            mask |= 1L << id;
+        }
+        return mask;
+    }
+
+    /**
+     * Move mucked cards under the stock and shuffle.
+     */
+    private void recycleMuck() {
+        System.arraycopy(stock, 0, stock, Long.bitCount(muck), stockSize);
+        int j = 0;
+        for (long m = muck; m != 0; m &= m - 1) {
+            stock[j++] = Long.numberOfTrailingZeros(m);
+        }
+        stockSize += j;
+        muck = 0;
+        shuffle();
+    }
+}
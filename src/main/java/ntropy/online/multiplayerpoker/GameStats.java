@@ -0,0 +1,554 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player, per-table and per-minute game statistics.
+ * Tables emit events into a bounded queue without ever blocking; a single
+ * aggregator thread folds them into running totals kept in primitive
+ * arrays, indexed through {@link IntIntMap}s. Queries read the totals
+ * directly and never rescan history. Per-minute rollups go by when each
+ * event was emitted, so a backlog does not shift them. If the queue is
+ * ever full, events are dropped and counted rather than stalling a table.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class GameStats extends Thread {
+
+    /**
+     * Event types.
+     */
+    private static final int HAND = 0, DRAW = 1, WIN = 2, TABLE_HAND = 3,
+            TABLE_ROUND = 4;
+
+    /**
+     * Most events waiting to be aggregated.
+     */
+    private static final int QUEUE_SIZE = 1 << 16;
+
+    /**
+     * Most events aggregated under one lock hold.
+     */
+    private static final int BATCH = 256;
+
+    /**
+     * Minutes of history kept for windowed rollups.
+     */
+    public static final int WINDOW_MINUTES = 60;
+
+    /**
+     * Column indexes into each row of totals.
+     */
+    private static final int HANDS = 0, ROUNDS = 1, CARDS = 2, WINS = 3,
+            POTS = 4, COLUMNS = 5;
+
+    /**
+     * Events waiting to be aggregated.
+     */
+    private final ArrayBlockingQueue<Event> events
+            = new ArrayBlockingQueue<>(QUEUE_SIZE);
+
+    /**
+     * Events dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Guards totals between the aggregator and queries.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Totals per player and per table.
+     */
+    private final Totals players = new Totals(), tables = new Totals();
+
+    /**
+     * Totals per minute, in a ring of {@link #WINDOW_MINUTES} rows.
+     */
+    private final long[] minutes = new long[WINDOW_MINUTES * COLUMNS];
+
+    /**
+     * Minute each ring row holds, or -1 if unused.
+     */
+    private final long[] minuteOf = new long[WINDOW_MINUTES];
+
+    /**
+     * Create stats pipeline; call start() to begin aggregating.
+     */
+    public GameStats() {
+        super("game-stats");
+        Arrays.fill(minuteOf, -1);
+        setDaemon(true);
+    }
+
+    /**
+     * Record a table dealing a new hand.
+     *
+     * @param table
+     *              table id
+     */
+    public void handDealt(final int table) {
+        emit(TABLE_HAND, table, 0, 0);
+    }
+
+    /**
+     * Record a table dealing a draw round.
+     *
+     * @param table
+     *              table id
+     */
+    public void roundDealt(final int table) {
+        emit(TABLE_ROUND, table, 0, 0);
+    }
+
+    /**
+     * Record a player being dealt into a hand.
+     *
+     * @param table
+     *              table id
+     * @param player
+     *               player id
+     */
+    public void handStarted(final int table, final int player) {
+        emit(HAND, table, player, 0);
+    }
+
+    /**
+     * Record a player drawing in a round; 0 cards is standing pat.
+     *
+     * @param table
+     *              table id
+     * @param player
+     *               player id
+     * @param cards
+     *              cards drawn
+     */
+    public void drew(final int table, final int player, final int cards) {
+        emit(DRAW, table, player, cards);
+    }
+
+    /**
+     * Record a player winning a pot.
+     *
+     * @param table
+     *              table id
+     * @param player
+     *               player id
+     * @param pot
+     *            pot size
+     */
+    public void won(final int table, final int player, final long pot) {
+        emit(WIN, table, player, pot);
+    }
+
+    /**
+     * Report a player's totals.
+     *
+     * @param player
+     *               player id
+     * @return totals, or null if the player has no events yet
+     */
+    public Summary player(final int player) {
+        synchronized (lock) {
+            return players.summary(player);
+        }
+    }
+
+    /**
+     * Report a table's totals.
+     *
+     * @param table
+     *              table id
+     * @return totals, or null if the table has no events yet
+     */
+    public Summary table(final int table) {
+        synchronized (lock) {
+            return tables.summary(table);
+        }
+    }
+
+    /**
+     * Report totals across all tables for the most recent minutes.
+     *
+     * @param mins
+     *             minutes to cover, at most {@link #WINDOW_MINUTES}
+     * @return totals over the window
+     */
+    public Summary window(final int mins) {
+        long now = currentMinute();
+        long[] sum = new long[COLUMNS];
+        synchronized (lock) {
+            for (int j = 0; j < WINDOW_MINUTES; j++) {
+                if (minuteOf[j] >= 0 && now - minuteOf[j] < mins) {
+                    for (int c = 0; c < COLUMNS; c++) {
+                        sum[c] += minutes[j * COLUMNS + c];
+                    }
+                }
+            }
+        }
+        return new Summary(sum);
+    }
+
+    /**
+     * Report events dropped because aggregation fell behind.
+     *
+     * @return dropped events
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Thread instructions.
+     */
+    @Override
+    public void run() {
+        ArrayList<Event> batch = new ArrayList<>(BATCH);
+        while (true) {
+            try {
+                batch.add(events.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            events.drainTo(batch, BATCH - 1);
+            synchronized (lock) {
+                for (Event e : batch) {
+                    apply(e);
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Queue an event without blocking.
+     *
+     * @param type
+     *             event type
+     * @param table
+     *              table id
+     * @param player
+     *               player id
+     * @param value
+     *              cards drawn or pot size
+     */
+    private void emit(final int type, final int table, final int player,
+            final long value) {
+        if (!events.offer(new Event(type, table, player, value,
+                currentMinute()))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Fold one event into every aggregate; lock must be held.
+     *
+     * @param e
+     *          event to apply
+     */
+    private void apply(final Event e) {
+        switch (e.type) {
+            case HAND:
+                players.add(e.player, HANDS, 1);
+                break;
+            case TABLE_HAND:
+                tables.add(e.table, HANDS, 1);
+                addMinute(e.minute, HANDS, 1);
+                break;
+            case TABLE_ROUND:
+                tables.add(e.table, ROUNDS, 1);
+                addMinute(e.minute, ROUNDS, 1);
+                break;
+            case DRAW:
+                players.add(e.player, ROUNDS, 1);
+                players.add(e.player, CARDS, e.value);
+                tables.add(e.table, CARDS, e.value);
+                addMinute(e.minute, CARDS, e.value);
+                break;
+            default:
+                players.add(e.player, WINS, 1);
+                players.add(e.player, POTS, e.value);
+                tables.add(e.table, WINS, 1);
+                tables.add(e.table, POTS, e.value);
+                addMinute(e.minute, WINS, 1);
+                addMinute(e.minute, POTS, e.value);
+                break;
+        }
+    }
+
+    /**
+     * Add to the rollup of the minute an event happened in, however late
+     * it is applied; lock must be held. An event older than the window is
+     * left out.
+     *
+     * @param minute
+     *               minute the event happened in
+     * @param column
+     *               column to add to
+     * @param amount
+     *               amount to add
+     */
+    private void addMinute(final long minute, final int column,
+            final long amount) {
+        int row = (int) (minute % WINDOW_MINUTES);
+        if (minuteOf[row] > minute) {
+            return;
+        }
+        if (minuteOf[row] != minute) {
+            minuteOf[row] = minute;
+            Arrays.fill(minutes, row * COLUMNS, (row + 1) * COLUMNS, 0);
+        }
+        minutes[row * COLUMNS + column] += amount;
+    }
+
+    /**
+     * Report current minute since the epoch.
+     *
+     * @return minute number
+     */
+    private static long currentMinute() {
+        return TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+    }
+
+    /**
+     * One game event.
+     */
+    private static final class Event {
+
+        /**
+         * Event type.
+         */
+        private final int type;
+
+        /**
+         * Table and player ids.
+         */
+        private final int table, player;
+
+        /**
+         * Cards drawn or pot size.
+         */
+        private final long value;
+
+        /**
+         * Minute since the epoch the event happened in.
+         */
+        private final long minute;
+
+        /**
+         * Create event.
+         *
+         * @param t
+         *          event type
+         * @param tbl
+         *            table id
+         * @param p
+         *          player id
+         * @param v
+         *          cards drawn or pot size
+         * @param m
+         *          minute since the epoch the event happened in
+         */
+        private Event(final int t, final int tbl, final int p, final long v,
+                final long m) {
+            type = t;
+            table = tbl;
+            player = p;
+            value = v;
+            minute = m;
+        }
+    }
+
+    /**
+     * Rows of running totals keyed by id.
+     */
+    private static final class Totals {
+
+        /**
+         * Row index by id.
+         */
+        private final IntIntMap rows = new IntIntMap();
+
+        /**
+         * Totals, {@link #COLUMNS} per row.
+         */
+        private long[] cells = new long[16 * COLUMNS];
+
+        /**
+         * Add to a cell, creating the row if needed.
+         *
+         * @param id
+         *           row id
+         * @param column
+         *               column to add to
+         * @param amount
+         *               amount to add
+         */
+        private void add(final int id, final int column, final long amount) {
+            int row = row(id); //may grow cells
+            cells[row * COLUMNS + column] += amount;
+        }
+
+        /**
+         * Copy a row out.
+         *
+         * @param id
+         *           row id
+         * @return summary, or null if no such row
+         */
+        private Summary summary(final int id) {
+            int row = rows.get(id);
+            if (row == IntIntMap.MISSING) {
+                return null;
+            }
+            return new Summary(Arrays.copyOfRange(cells, row * COLUMNS,
+                    (row + 1) * COLUMNS));
+        }
+
+        /**
+         * Find or create row for an id.
+         *
+         * @param id
+         *           row id
+         * @return row index
+         */
+        private int row(final int id) {
+            int row = rows.get(id);
+            if (row == IntIntMap.MISSING) {
+                row = rows.size();
+                rows.put(id, row);
+                if ((row + 1) * COLUMNS > cells.length) {
+                    cells = Arrays.copyOf(cells, cells.length * 2);
+                }
+            }
+            return row;
+        }
+    }
+
+    /**
+     * Immutable copy of one set of totals.
+     */
+    public static final class Summary {
+
+        /**
+         * Hands played, draw rounds, cards drawn, pots won, chips won.
+         */
+        private final long hands, rounds, cards, wins, pots;
+
+        /**
+         * Create summary from a row of totals.
+         *
+         * @param row
+         *            totals, one per column
+         */
+        private Summary(final long[] row) {
+            hands = row[HANDS];
+            rounds = row[ROUNDS];
+            cards = row[CARDS];
+            wins = row[WINS];
+            pots = row[POTS];
+        }
+
+        /**
+         * Report hands played.
+         *
+         * @return hands
+         */
+        public long getHands() {
+            return hands;
+        }
+
+        /**
+         * Report draw rounds played.
+         *
+         * @return rounds
+         */
+        public long getRounds() {
+            return rounds;
+        }
+
+        /**
+         * Report cards drawn.
+         *
+         * @return cards
+         */
+        public long getCards() {
+            return cards;
+        }
+
+        /**
+         * Report pots won.
+         *
+         * @return wins
+         */
+        public long getWins() {
+            return wins;
+        }
+
+        /**
+         * Report chips won across all pots.
+         *
+         * @return pot total
+         */
+        public long getPots() {
+            return pots;
+        }
+
+        /**
+         * Report average cards drawn per round.
+         *
+         * @return cards per round, or 0 if no rounds
+         */
+        public double cardsPerRound() {
+            return rounds == 0 ? 0 : (double) cards / rounds;
+        }
+
+        /**
+         * Report share of hands won.
+         *
+         * @return win rate, or 0 if no hands
+         */
+        public double winRate() {
+            return hands == 0 ? 0 : (double) wins / hands;
+        }
+
+        /**
+         * Report average pot won.
+         *
+         * @return average pot, or 0 if no wins
+         */
+        public double averagePot() {
+            return wins == 0 ? 0 : (double) pots / wins;
+        }
+
+        @Override
+        public String toString() {
+            return "hands=" + hands + " rounds=" + rounds + " cards=" + cards
+                    + " wins=" + wins + " pots=" + pots;
+        }
+    }
+}
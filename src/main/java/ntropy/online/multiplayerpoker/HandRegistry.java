@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+/**
+ * Server's record of the cards dealt to each seat.
+ * Each hand is a {@link Deck} card mask, so checking that a client really
+ * holds what it returns is a single AND.
+ * Not thread-safe; a registry belongs to one table.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class HandRegistry {
+
+    /**
+     * Hand mask per seat.
+     */
+    private final long[] hands;
+
+    /**
+     * Create registry with every hand empty.
+     *
+     * @param seats
+     *              number of seats
+     */
+    public HandRegistry(final int seats) {
+        hands = new long[seats];
+    }
+
+    /**
+     * Add dealt cards to a hand.
+     *
+     * @param seat
+     *             seat index
+     * @param cards
+     *              cards dealt, as a mask
+     */
+    public void give(final int seat, final long cards) {
+        hands[seat] |= cards;
+    }
+
+    /**
+     * Remove discarded cards from a hand if, and only if, the seat holds
+     * all of them.
+     *
+     * @param seat
+     *             seat index
+     * @param cards
+     *              cards returned, as a mask
+     * @return true if the discard was valid and has been taken
+     */
+    public boolean take(final int seat, final long cards) {
+        if (cards == Deck.INVALID || (cards & ~hands[seat]) != 0) {
+            return false;
+        }
+        hands[seat] &= ~cards;
+        return true;
+    }
+
+    /**
+     * Empty a hand, e.g. when its player leaves.
+     *
+     * @param seat
+     *             seat index
+     * @return cards that were held, as a mask
+     */
+    public long clear(final int seat) {
+        long cards = hands[seat];
+        hands[seat] = 0;
+        return cards;
+    }
+
+    /**
+     * Report cards held at a seat.
+     *
+     * @param seat
+     *             seat index
+     * @return hand, as a mask
+     */
+    public long hand(final int seat) {
+        return hands[seat];
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared timer for action deadlines, disconnect grace periods and the like.
+ * Timeouts are hashed into a ring of buckets by the tick they expire on, so
+ * scheduling and cancelling are O(1) no matter how many are pending. The
+ * price is precision: timeouts fire on the first tick at or after their
+ * deadline.
+ * Tasks run on the timer thread and must be short; hand anything heavy
+ * off to another thread.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class HashedWheelTimer extends Thread {
+
+    /**
+     * Ring of buckets; length is a power of two.
+     */
+    private final Bucket[] wheel;
+
+    /**
+     * Mask for bucket index.
+     */
+    private final int mask;
+
+    /**
+     * Tick length, in nanoseconds.
+     */
+    private final long tickNanos;
+
+    /**
+     * Timeouts scheduled but not yet placed in a bucket.
+     */
+    private final ConcurrentLinkedQueue<Timeout> additions
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Timeouts cancelled but not yet removed from a bucket.
+     */
+    private final ConcurrentLinkedQueue<Timeout> cancellations
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of timeouts neither expired nor cancelled.
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * Time the timer was created; ticks are counted from here.
+     */
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Ticks processed so far; only touched by the timer thread.
+     */
+    private long tick;
+
+    /**
+     * Create timer; call start() to begin ticking.
+     *
+     * @param name
+     *             timer thread name
+     * @param tickMs
+     *               tick length, in milliseconds
+     * @param wheelSize
+     *                  number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(final String name, final long tickMs,
+            final int wheelSize) {
+        super(name);
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        wheel = new Bucket[size];
+        for (int j = 0; j < size; j++) {
+            wheel[j] = new Bucket();
+        }
+        mask = size - 1;
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        setDaemon(true);
+    }
+
+    /**
+     * Schedule a task to run once after a delay.
+     *
+     * @param task
+     *             task to run on the timer thread
+     * @param delayMs
+     *                delay, in milliseconds
+     * @return handle to cancel the task with
+     */
+    public Timeout schedule(final Runnable task, final long delayMs) {
+        Timeout t = new Timeout(this, task, System.nanoTime() - startNanos
+                + TimeUnit.MILLISECONDS.toNanos(delayMs));
+        pending.incrementAndGet();
+        additions.add(t);
+        return t;
+    }
+
+    /**
+     * Report number of timeouts neither expired nor cancelled.
+     *
+     * @return pending timeouts
+     */
+    public long pending() {
+        return pending.get();
+    }
+
+    /**
+     * Thread instructions.
+     */
+    @Override
+    public void run() {
+        while (!isInterrupted()) {
+            long sleepNanos = (tick + 1) * tickNanos
+                    - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            removeCancelled();
+            placeAdditions();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * Unlink cancelled timeouts from their buckets.
+     */
+    private void removeCancelled() {
+        Timeout t;
+        while ((t = cancellations.poll()) != null) {
+            if (t.bucket != null) {
+                t.bucket.remove(t);
+            }
+        }
+    }
+
+    /**
+     * Move newly scheduled timeouts into their buckets.
+     */
+    private void placeAdditions() {
+        Timeout t;
+        while ((t = additions.poll()) != null) {
+            if (t.state.get() != Timeout.WAITING) {
+                continue;
+            }
+            long expiryTick = Math.max(t.deadlineNanos / tickNanos, tick);
+            t.rounds = (expiryTick - tick) / wheel.length;
+            wheel[(int) (expiryTick & mask)].add(t);
+        }
+    }
+
+    /**
+     * Handle to a scheduled task.
+     */
+    public static final class Timeout {
+
+        /**
+         * Timeout states.
+         */
+        private static final int WAITING = 0, CANCELLED = 1, EXPIRED = 2;
+
+        /**
+         * Owning timer.
+         */
+        private final HashedWheelTimer timer;
+
+        /**
+         * Task to run on expiry.
+         */
+        private final Runnable task;
+
+        /**
+         * Deadline, in nanoseconds since the timer started.
+         */
+        private final long deadlineNanos;
+
+        /**
+         * Current state.
+         */
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        /**
+         * Full turns of the wheel left before expiry; timer thread only.
+         */
+        private long rounds;
+
+        /**
+         * Bucket links; timer thread only.
+         */
+        private Timeout prev, next;
+
+        /**
+         * Bucket holding this timeout; timer thread only.
+         */
+        private Bucket bucket;
+
+        /**
+         * Create a timeout.
+         *
+         * @param tm
+         *           owning timer
+         * @param r
+         *          task to run
+         * @param deadline
+         *                 deadline, in nanoseconds since timer start
+         */
+        private Timeout(final HashedWheelTimer tm, final Runnable r,
+                final long deadline) {
+            timer = tm;
+            task = r;
+            deadlineNanos = deadline;
+        }
+
+        /**
+         * Cancel task if it has not run yet.
+         *
+         * @return true if cancelled by this call
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(WAITING, CANCELLED)) {
+                return false;
+            }
+            timer.pending.decrementAndGet();
+            timer.cancellations.add(this);
+            return true;
+        }
+
+        /**
+         * Report whether task has run.
+         *
+         * @return true if expired
+         */
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * Doubly-linked list of timeouts expiring on the same slot.
+     */
+    private static final class Bucket {
+
+        /**
+         * List ends.
+         */
+        private Timeout head, tail;
+
+        /**
+         * Append timeout.
+         *
+         * @param t
+         *          timeout to add
+         */
+        private void add(final Timeout t) {
+            t.bucket = this;
+            if (head == null) {
+                head = t;
+            } else {
+                tail.next = t;
+                t.prev = tail;
+            }
+            tail = t;
+        }
+
+        /**
+         * Unlink timeout.
+         *
+         * @param t
+         *          timeout to remove
+         */
+        private void remove(final Timeout t) {
+            if (t.prev == null) {
+                head = t.next;
+            } else {
+                t.prev.next = t.next;
+            }
+            if (t.next == null) {
+                tail = t.prev;
+            } else {
+                t.next.prev = t.prev;
+            }
+            t.prev = null;
+            t.next = null;
+            t.bucket = null;
+        }
+
+        /**
+         * Run timeouts due this turn of the wheel, and count down the rest.
+         */
+        private void expire() {
+            Timeout t = head;
+            while (t != null) {
+                Timeout next = t.next;
+                if (t.rounds <= 0) {
+                    remove(t);
+                    if (t.state.compareAndSet(Timeout.WAITING,
+                            Timeout.EXPIRED)) {
+                        t.timer.pending.decrementAndGet();
+                        try {
+                            t.task.run();
+                        } catch (RuntimeException e) {
+                            System.err.println("Timer task failed: " + e);
+                        }
+                    }
+                } else {
+                    t.rounds--;
+                }
+                t = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+/**
+ * Open-addressing map from int keys to int values, without boxing.
+ * Values are usually row indexes into parallel primitive arrays.
+ * Not thread-safe.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class IntIntMap {
+
+    /**
+     * Returned by {@link #get(int)} for missing keys.
+     */
+    public static final int MISSING = -1;
+
+    /**
+     * Keys by slot; length is a power of two.
+     */
+    private int[] keys;
+
+    /**
+     * Values by slot.
+     */
+    private int[] values;
+
+    /**
+     * Whether each slot is used; lets every int be a key.
+     */
+    private boolean[] used;
+
+    /**
+     * Number of keys.
+     */
+    private int size;
+
+    /**
+     * Create an empty map.
+     */
+    public IntIntMap() {
+        allocate(16);
+    }
+
+    /**
+     * Look up a key.
+     *
+     * @param key
+     *            key to find
+     * @return value, or {@link #MISSING}
+     */
+    public int get(final int key) {
+        int mask = keys.length - 1;
+        for (int j = hash(key) & mask; used[j]; j = (j + 1) & mask) {
+            if (keys[j] == key) {
+                return values[j];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * Add or replace a key.
+     *
+     * @param key
+     *            key to set
+     * @param value
+     *              value to store
+     */
+    public void put(final int key, final int value) {
+        if ((size + 1) * 4 > keys.length * 3) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int j = hash(key) & mask;
+        while (used[j]) {
+            if (keys[j] == key) {
+                values[j] = value;
+                return;
+            }
+            j = (j + 1) & mask;
+        }
+        used[j] = true;
+        keys[j] = key;
+        values[j] = value;
+        size++;
+    }
+
+    /**
+     * Report number of keys.
+     *
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Spread key bits so sequential ids do not cluster.
+     *
+     * @param key
+     *            key to hash
+     * @return hash
+     */
+    private static int hash(final int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Replace tables with empty ones.
+     *
+     * @param capacity
+     *                 slot count, a power of two
+     */
+    private void allocate(final int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        size = 0;
+    }
+
+    /**
+     * Double capacity and re-insert every key.
+     */
+    private void grow() {
+        int[] oldKeys = keys, oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldUsed[j]) {
+                put(oldKeys[j], oldValues[j]);
+            }
+        }
+    }
+}
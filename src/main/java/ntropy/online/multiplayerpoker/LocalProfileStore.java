@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Profile store kept in memory and, optionally, in a local properties file
+ * of name=chips lines.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class LocalProfileStore implements ProfileStore {
+
+    /**
+     * Balance given to new players.
+     */
+    public static final long STARTING_CHIPS = 1000;
+
+    /**
+     * Profiles by name.
+     */
+    private final ConcurrentHashMap<String, PlayerProfile> profiles
+            = new ConcurrentHashMap<>();
+
+    /**
+     * File profiles are saved to, or null to keep them in memory only.
+     */
+    private final File file;
+
+    /**
+     * Create store that keeps profiles in memory only.
+     */
+    public LocalProfileStore() {
+        file = null;
+    }
+
+    /**
+     * Create store, loading any profiles already saved.
+     *
+     * @param f
+     *          file to save to
+     * @throws IOException
+     *             if an existing file cannot be read
+     */
+    public LocalProfileStore(final File f) throws IOException {
+        file = f;
+        if (file.exists()) {
+            Properties props = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            }
+            for (String name : props.stringPropertyNames()) {
+                try {
+                    profiles.put(name, new PlayerProfile(name,
+                            Long.parseLong(props.getProperty(name))));
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping bad profile " + name + ": "
+                            + e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public PlayerProfile load(final String name) {
+        return profiles.computeIfAbsent(name,
+                (String n) -> new PlayerProfile(n, STARTING_CHIPS));
+    }
+
+    @Override
+    public void save(final PlayerProfile profile) throws IOException {
+        profiles.put(profile.getName(), profile);
+        if (file == null) {
+            return;
+        }
+        //snapshot and write under one lock, so a save that snapshots later
+        //cannot be overwritten on disk by an earlier, staler snapshot
+        synchronized (this) {
+            Properties props = new Properties();
+            for (PlayerProfile p : profiles.values()) {
+                props.setProperty(p.getName(), Long.toString(p.getChips()));
+            }
+            try (OutputStream out = new FileOutputStream(file)) {
+                props.store(out, "MultiplayerPoker profiles");
+            }
+        }
+    }
+
+    @Override
+    public List<PlayerProfile> leaderboard(final int from, final int count) {
+        ArrayList<PlayerProfile> all = new ArrayList<>(profiles.values());
+        all.sort((PlayerProfile a, PlayerProfile b) -> a.getChips()
+                != b.getChips() ? Long.compare(b.getChips(), a.getChips())
+                : a.getName().compareTo(b.getName()));
+        if (from >= all.size()) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(all.subList(from,
+                Math.min(all.size(), from + count)));
+    }
+}
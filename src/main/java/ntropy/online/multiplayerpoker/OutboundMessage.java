@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Pre-encoded line(s) of text to be written to one or more clients.
+ * Bytes are produced once on creation and never change afterwards, so the
+ * same instance may be handed to every recipient of a broadcast.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class OutboundMessage {
+
+    /**
+     * Marks a line as a table event rather than a card name.
+     * Clients skip lines starting with this when reading dealt cards.
+     */
+    public static final String EVENT_PREFIX = "EVT ";
+
+    /**
+     * Encoded payload; never exposed so it can be shared safely.
+     */
+    private final byte[] payload;
+
+    /**
+     * Wrap an already encoded payload.
+     *
+     * @param b
+     *          encoded bytes, owned by this message from now on
+     */
+    private OutboundMessage(final byte[] b) {
+        payload = b;
+    }
+
+    /**
+     * Encode a single table event line, e.g. "EVT DRAW 2 3".
+     *
+     * @param type
+     *             event type
+     * @param fields
+     *             event fields, separated by spaces
+     * @return encoded event
+     */
+    public static OutboundMessage event(final String type,
+            final Object... fields) {
+        StringBuilder sb = new StringBuilder(EVENT_PREFIX).append(type);
+        for (Object field : fields) {
+            sb.append(' ').append(field);
+        }
+        return new OutboundMessage(sb.append('\n').toString()
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encode plain lines, such as card names dealt to a single client.
+     *
+     * @param lines
+     *              lines to send, in order
+     * @return encoded lines
+     */
+    public static OutboundMessage lines(final Collection<String> lines) {
+        StringBuilder sb = new StringBuilder();
+        lines.forEach((String s) -> {
+            sb.append(s).append('\n');
+        });
+        return new OutboundMessage(sb.toString()
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write payload to a stream; does not flush.
+     *
+     * @param out
+     *            stream to write to
+     * @throws IOException
+     *             if the stream cannot be written
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(payload);
+    }
+
+    /**
+     * View payload for a non-blocking write; the view cannot change it.
+     *
+     * @return read-only buffer positioned at the start of the payload
+     */
+    public ByteBuffer buffer() {
+        return ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+
+    /**
+     * Report encoded size.
+     *
+     * @return size in bytes
+     */
+    public int size() {
+        return payload.length;
+    }
+}
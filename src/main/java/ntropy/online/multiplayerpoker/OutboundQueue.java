@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * Bounded per-connection outbound queue with its own writer thread.
+ * Senders only enqueue, so a client with a stalled TCP window blocks its
+ * own writer and nobody else. Queue size is tracked in bytes against a
+ * high and low watermark; what to do past the high watermark is up to the
+ * owner of the queue.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class OutboundQueue extends Thread {
+
+    /**
+     * Messages waiting to be written; guarded by lock.
+     */
+    private final ArrayDeque<OutboundMessage> pending = new ArrayDeque<>();
+
+    /**
+     * Guards queue state.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Stream to write to.
+     */
+    private final OutputStream out;
+
+    /**
+     * Watermarks, in bytes.
+     */
+    private final int lowWater, highWater;
+
+    /**
+     * Run if writing fails or the queue is closed.
+     */
+    private final Runnable onClose;
+
+    /**
+     * Bytes waiting to be written; guarded by lock.
+     */
+    private long queuedBytes;
+
+    /**
+     * Time queue went over high watermark, or 0 if it has since drained
+     * below low watermark; guarded by lock.
+     */
+    private long overHighSince;
+
+    /**
+     * Set once closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Create queue for a connection; call start() to begin writing.
+     *
+     * @param name
+     *             writer thread name
+     * @param o
+     *          stream to write to
+     * @param low
+     *            low watermark, in bytes
+     * @param high
+     *             high watermark, in bytes
+     * @param close
+     *              run once if writing fails or the queue is closed
+     */
+    public OutboundQueue(final String name, final OutputStream o,
+            final int low, final int high, final Runnable close) {
+        super(name);
+        out = o;
+        lowWater = low;
+        highWater = high;
+        onClose = close;
+        setDaemon(true);
+    }
+
+    /**
+     * Enqueue a message unless it would go past the high watermark.
+     *
+     * @param msg
+     *            message to send
+     * @return false if dropped because queue is full or closed
+     */
+    public boolean offer(final OutboundMessage msg) {
+        synchronized (lock) {
+            if (closed || queuedBytes + msg.size() > highWater) {
+                return false;
+            }
+            enqueue(msg);
+        }
+        return true;
+    }
+
+    /**
+     * Enqueue a message regardless of watermarks.
+     * Callers must check {@link #overHighWaterNanos()} and disconnect the
+     * client if it stays behind for too long.
+     *
+     * @param msg
+     *            message to send
+     * @return false if dropped because queue is closed
+     */
+    public boolean put(final OutboundMessage msg) {
+        synchronized (lock) {
+            if (closed) {
+                return false;
+            }
+            enqueue(msg);
+        }
+        return true;
+    }
+
+    /**
+     * Report bytes waiting to be written.
+     *
+     * @return queued bytes
+     */
+    public long queuedBytes() {
+        synchronized (lock) {
+            return queuedBytes;
+        }
+    }
+
+    /**
+     * Report whether queue has drained to its low watermark.
+     *
+     * @return true if at or below low watermark
+     */
+    public boolean belowLowWater() {
+        synchronized (lock) {
+            return queuedBytes <= lowWater;
+        }
+    }
+
+    /**
+     * Report how long queue has been over its high watermark without
+     * draining back to its low watermark.
+     *
+     * @return nanoseconds over high watermark, or 0 if not
+     */
+    public long overHighWaterNanos() {
+        synchronized (lock) {
+            return overHighSince == 0 ? 0 : System.nanoTime() - overHighSince;
+        }
+    }
+
+    /**
+     * Report whether queue has been closed.
+     *
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stop writing and drop anything still queued.
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            queuedBytes = 0;
+            lock.notifyAll();
+        }
+        onClose.run();
+    }
+
+    /**
+     * Thread instructions.
+     */
+    @Override
+    public void run() {
+        OutboundMessage msg;
+        boolean more;
+        try {
+            while (true) {
+                synchronized (lock) {
+                    while (pending.isEmpty() && !closed) {
+                        lock.wait();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    msg = pending.poll();
+                }
+                msg.writeTo(out);
+                synchronized (lock) {
+                    queuedBytes -= msg.size();
+                    if (queuedBytes <= lowWater) {
+                        overHighSince = 0;
+                    }
+                    more = !pending.isEmpty();
+                }
+                if (!more) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to write to " + getName() + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        close();
+    }
+
+    /**
+     * Add message and update watermark tracking; lock must be held.
+     *
+     * @param msg
+     *            message to add
+     */
+    private void enqueue(final OutboundMessage msg) {
+        pending.add(msg);
+        queuedBytes += msg.size();
+        if (queuedBytes > highWater && overHighSince == 0) {
+            overHighSince = System.nanoTime();
+        }
+        lock.notifyAll();
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+/**
+ * Immutable snapshot of a player's profile.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class PlayerProfile {
+
+    /**
+     * Player name; unique.
+     */
+    private final String name;
+
+    /**
+     * Chip balance.
+     */
+    private final long chips;
+
+    /**
+     * Create profile.
+     *
+     * @param n
+     *          player name
+     * @param c
+     *          chip balance
+     */
+    public PlayerProfile(final String n, final long c) {
+        name = n;
+        chips = c;
+    }
+
+    /**
+     * Report player name.
+     *
+     * @return name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Report chip balance.
+     *
+     * @return chips
+     */
+    public long getChips() {
+        return chips;
+    }
+
+    /**
+     * Copy profile with a new balance.
+     *
+     * @param c
+     *          new chip balance
+     * @return updated profile
+     */
+    public PlayerProfile withChips(final long c) {
+        return new PlayerProfile(name, c);
+    }
+}
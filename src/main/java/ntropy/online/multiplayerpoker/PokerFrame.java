@@ -40,6 +40,7 @@ import java.util.ArrayList;
 import javax.imageio.ImageIO;
 import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -108,6 +109,27 @@ public final class PokerFrame {
      */
     private static CardPanel cardPanel;
 
+    /**
+     * Shows the latest table event.
+     */
+    private static JLabel statusLabel;
+
+    /**
+     * Replacement cards still owed for the last switch; EDT only.
+     */
+    private static int awaitedCards;
+
+    /**
+     * Set from a switch until the table deals the round; EDT only.
+     */
+    private static boolean waitingForRound;
+
+    /**
+     * Set until the starting hand, or the fresh hand after a move to
+     * another table, has arrived; EDT only.
+     */
+    private static boolean awaitingHand;
+
     /**
      * Main window container for application.
      */
@@ -159,7 +181,10 @@ public final class PokerFrame {
         buttonPanel.add(switchBtn);
         buttonPanel.setOpaque(false);
 
+        statusLabel = new JLabel("Waiting for the table...");
+
         JPanel centerPanel = new JPanel(new BorderLayout());
+        centerPanel.add(statusLabel, BorderLayout.NORTH);
         centerPanel.add(cardPanel, BorderLayout.CENTER);
         centerPanel.add(buttonPanel, BorderLayout.SOUTH);
         centerPanel.setOpaque(false);
@@ -183,6 +208,9 @@ public final class PokerFrame {
         mainFrame.setLocationByPlatform(true);
         mainFrame.setResizable(false);
         mainFrame.pack();
+
+        awaitHand();
+        new ServerReader().start();
     }
 
     /**
@@ -202,6 +230,61 @@ public final class PokerFrame {
         }
     }
 
+    /**
+     * Handle one line from server; EDT only.
+     * Events are shown in the status line, and a dealt round ends the
+     * wait for it. A rejected switch is undone so the player can act again.
+     * The first cards, and the next cards after a move to another table,
+     * replace the whole hand; a move is acknowledged so the new table
+     * knows later switches are for the new hand. Other card lines are
+     * replacements for the last switch.
+     *
+     * @param line
+     *             line from server
+     */
+    private static void handleLine(final String line) {
+        if (line.startsWith(OutboundMessage.EVENT_PREFIX)) {
+            String event = line.substring(OutboundMessage.EVENT_PREFIX
+                    .length());
+            statusLabel.setText(event);
+            if (event.startsWith("ROUND ")) {
+                waitingForRound = false;
+            } else if (event.startsWith("MOVE ")) {
+                awaitHand();
+                svrOut.println(ServerConnection.MOVE_ACK + " "
+                        + event.split(" ")[1]);
+            } else if (event.startsWith("REJECT ") && !awaitingHand) {
+                waitingForRound = false;
+                awaitedCards = 0;
+                NEW_CARD_LIST.clear();
+                for (Card curCard : cards) {
+                    curCard.setSwitch(false);
+                }
+            }
+            return;
+        }
+        NEW_CARD_LIST.add(line);
+        if (NEW_CARD_LIST.size() == awaitedCards) {
+            awaitedCards = 0;
+            awaitingHand = false;
+            adjustCardArr();
+            cardPanel.repaint();
+        }
+    }
+
+    /**
+     * Treat the next cards from server as a whole new hand; EDT only.
+     */
+    private static void awaitHand() {
+        waitingForRound = false;
+        awaitingHand = true;
+        awaitedCards = cards.length;
+        NEW_CARD_LIST.clear();
+        for (Card curCard : cards) {
+            curCard.setSwitch(true);
+        }
+    }
+
     /**
      * Create application thread.
      *
@@ -233,7 +316,8 @@ public final class PokerFrame {
         private static BufferedImage cardFront, cardBack;
 
         /**
-         * Create images from file, get dimensions, populate card array.
+         * Create images from file, get dimensions, populate card array with
+         * face-down placeholders until the hand is dealt.
          */
         private CardPanel() {
             try {
@@ -251,17 +335,17 @@ public final class PokerFrame {
                     * cardWidth - cardNum * (cardSpacing - cardWidth);
 
             cards = new Card[cardNum];
-            //TODO grab card names from server on initialization
             for (int j = 0; j < cardNum; j++) {
                 if (j == 0) {
                     cards[0] = new Card(leftMargin,
                             cardPanelHeight / 2 - cardHeight / 2, cardWidth,
-                            cardHeight, "TEMP");
+                            cardHeight, "");
                 } else {
                     cards[j] = new Card(leftMargin + cardSpacing * j,
                             cardPanelHeight / 2 - cardHeight / 2, cardWidth,
-                            cardHeight, "TEMP");
+                            cardHeight, "");
                 }
+                cards[j].setFill(true);
             }
         }
 
@@ -319,6 +403,9 @@ public final class PokerFrame {
         public void actionPerformed(final ActionEvent e) {
             String cmd = e.getActionCommand();
             if (cmd.equals(switchCmd)) {
+                if (waitingForRound || awaitedCards > 0) {
+                    return; //already acted this round
+                }
                 numCardsSwitched = 0;
                 for (Card curCard : cards) {
                     if (curCard.isFlipped()) {
@@ -332,20 +419,45 @@ public final class PokerFrame {
                         svrOut.println(curCard.getType());
                     }
                 }
-                String svrInput;
-                while (NEW_CARD_LIST.size() < numCardsSwitched) {
-                    try {
-                        svrInput = svrIn.readLine();
-                        NEW_CARD_LIST.add(svrInput);
-                    } catch (IOException ie) {
-                        System.err.println("Couldn't read from server: " + ie);
-                        //DEBUG
-                        System.exit(0);
-                    }
+                awaitedCards = numCardsSwitched;
+                waitingForRound = true;
+                statusLabel.setText("Waiting for the other players...");
+            }
+        }
+    }
+
+    /**
+     * Reads everything the server sends and hands it to the EDT, so the
+     * window is up while the table fills and events show up as they
+     * happen.
+     */
+    private static final class ServerReader extends Thread {
+
+        /**
+         * Create reader; call start() to begin reading.
+         */
+        private ServerReader() {
+            super("server-reader");
+            setDaemon(true);
+        }
+
+        /**
+         * Thread instructions.
+         */
+        @Override
+        public void run() {
+            String svrInput;
+            try {
+                while ((svrInput = svrIn.readLine()) != null) {
+                    final String line = svrInput;
+                    SwingUtilities.invokeLater(() -> handleLine(line));
                 }
-                adjustCardArr();
-                cardPanel.repaint();
+                System.err.println("Server closed connection");
+            } catch (IOException ie) {
+                System.err.println("Couldn't read from server: " + ie);
             }
+            //DEBUG
+            System.exit(0);
         }
     }
 
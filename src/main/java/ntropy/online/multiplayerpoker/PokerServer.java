@@ -20,12 +20,16 @@ package ntropy.online.multiplayerpoker;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Server to handle poker deck.
@@ -39,30 +43,100 @@ import java.util.List;
 public final class PokerServer {
 
     /**
-     * Card handling.
+     * Default connection info.
      */
-    private static final ArrayList<String> DECK = new ArrayList<>();
+    private static final int DEFAULT_PORT = 22337, DEFAULT_CONNECTION_NUM = 1;
 
     /**
-     * Default connection info.
+     * Most seats a table can deal full hands to from one deck.
      */
-    private static final int DEFAULT_PORT = 22337, DEFAULT_CONNECTION_NUM = 1;
+    private static final int MAX_SEATS = Deck.SIZE / Table.HAND_SIZE;
 
     /**
-     * Client info; largely unused as of now.
+     * Spectators connect on the game port plus this offset.
      */
-    private static int connectionNum;
+    private static final int SPECTATOR_PORT_OFFSET = 1;
+
+    /**
+     * Threads serving spectators. each serves many.
+     */
+    private static final int SPECTATOR_LOOP_NUM = Math.max(1,
+            Runtime.getRuntime().availableProcessors() / 4);
+
+    /**
+     * Time between shard rebalances, in milliseconds.
+     */
+    private static final long REBALANCE_MS = 1_000;
+
+    /**
+     * Shared timer for deadlines and grace periods.
+     */
+    private static final HashedWheelTimer TIMER = new HashedWheelTimer(
+            "table-timer", 100, 512);
+
+    /**
+     * Tables, each confined to one worker thread at a time.
+     */
+    private static final TableShards SHARDS = new TableShards(
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Game statistics fed by every table.
+     */
+    private static final GameStats STATS = new GameStats();
+
+    /**
+     * Argument that runs a scripted game on loopback and exits, to record
+     * which classes a real server loads (e.g. for a CDS archive).
+     */
+    public static final String CDS_TRAINING = "--cds-training";
 
     /**
-     * Array of clients.
+     * Draw rounds played by the training client.
      */
-    private static ServerConnection[] clients;
+    private static final int TRAINING_ROUNDS = 3;
+
+    /**
+     * Argument, followed by a number of entrants, that runs a tournament
+     * instead of open tables.
+     */
+    public static final String TOURNAMENT = "--tournament";
+
+    /**
+     * Seats per tournament table; a full ring.
+     */
+    private static final int TOURNAMENT_SEATS = 9;
+
+    /**
+     * Length of each tournament blind level, in milliseconds.
+     */
+    private static final long BLIND_LEVEL_MS = 600_000;
+
+    /**
+     * Seats per table.
+     */
+    private static int connectionNum;
 
     /**
      * Socket for connection to clients.
      */
     private static ServerSocket mainSocket;
 
+    /**
+     * Channel for connection to spectators.
+     */
+    private static ServerSocketChannel spectatorSocket;
+
+    /**
+     * Threads serving spectators.
+     */
+    private static SpectatorLoop[] spectatorLoops;
+
+    /**
+     * Next spectator loop to hand a spectator to.
+     */
+    private static final AtomicInteger NEXT_LOOP = new AtomicInteger();
+
     /**
      * Connection info for clients.
      */
@@ -78,89 +152,112 @@ public final class PokerServer {
      * Main method.
      *
      * @param args
-     *             command-line arguments; unused here as of yet
+     *             command-line arguments; {@link #CDS_TRAINING},
+     *             {@link #TOURNAMENT} and a number of entrants, or none
      */
     public static void main(final String[] args) {
-        try {
-            localIP = InetAddress.getLocalHost().getHostAddress().trim();
-            publicIP = (new BufferedReader(new InputStreamReader((new URL(
-                    "http://checkip.amazonaws.com")).openStream()))).readLine();
-        } catch (IOException e) {
-            System.err.println("Unable to grab local or public IP: " + e);
+        boolean training = args.length > 0 && CDS_TRAINING.equals(args[0]);
+        int entrants = 0;
+        if (args.length > 0 && TOURNAMENT.equals(args[0])) {
+            try {
+                entrants = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+            } catch (NumberFormatException e) {
+                System.err.println("Bad number of entrants: " + e);
+            }
+            if (entrants < 2) {
+                System.err.println("A tournament needs at least 2 entrants");
+                System.exit(1);
+            }
         }
+        int port = 0; //any free port when training
+        connectionNum = DEFAULT_CONNECTION_NUM;
+        if (!training) {
+            try {
+                localIP = InetAddress.getLocalHost().getHostAddress().trim();
+                publicIP = (new BufferedReader(new InputStreamReader((new URL(
+                        "http://checkip.amazonaws.com")).openStream())))
+                        .readLine();
+            } catch (IOException e) {
+                System.err.println("Unable to grab local or public IP: " + e);
+            }
 
-        BufferedReader usrInpt = new BufferedReader(new InputStreamReader(
-                System.in));
-
-        initializeDeck();
-        shuffleDeck();
+            BufferedReader usrInpt = new BufferedReader(new InputStreamReader(
+                    System.in));
 
-        int port = getPort(usrInpt);
-        getConnectionNum(usrInpt);
+            port = getPort(usrInpt);
+            getConnectionNum(usrInpt);
+        }
 
-        System.out.println("Port: " + port);
-        System.out.println("Local IP: " + localIP);
-        System.out.println("Public IP: " + publicIP);
-        System.out.println("Connection number: " + connectionNum);
+        connectionNum = Math.max(1, Math.min(connectionNum, MAX_SEATS));
+        if (entrants > 0) {
+            connectionNum = TOURNAMENT_SEATS;
+        }
         try {
             mainSocket = new ServerSocket(port);
+            spectatorSocket = ServerSocketChannel.open();
+            spectatorSocket.socket().bind(new InetSocketAddress(training ? 0
+                    : port + SPECTATOR_PORT_OFFSET));
+            spectatorLoops = new SpectatorLoop[SPECTATOR_LOOP_NUM];
+            for (int j = 0; j < SPECTATOR_LOOP_NUM; j++) {
+                spectatorLoops[j] = new SpectatorLoop("spectator-loop-" + j,
+                        SHARDS);
+                spectatorLoops[j].start();
+            }
         } catch (IOException e) {
             System.err.println("Unable to open socket: " + e);
             //DEBUG
             System.exit(0);
         }
-        runThread();
-    }
-
-    /**
-     * Create and shuffle deck of cards.
-     */
-    private static void initializeDeck() {
-        final String[] cardTypes = {"Ace", "Two", "Three", "Four", "Five",
-            "Six", "Seven", "Eight", "Nine", "Ten", "Jack", "Queen", "King"};
-        final String[] suits = {"Clubs", "Hearts", "Diamonds", "Spades"};
-        for (String curSuit : suits) {
-            for (String curType : cardTypes) {
-                DECK.add(curSuit + curType);
-            }
+        System.out.println("Port: " + mainSocket.getLocalPort());
+        System.out.println("Local IP: " + localIP);
+        System.out.println("Public IP: " + publicIP);
+        System.out.println("Seats per table: " + connectionNum);
+        System.out.println("Spectator port: "
+                + spectatorSocket.socket().getLocalPort());
+        TIMER.start();
+        STATS.start();
+        TIMER.schedule(PokerServer::rebalance, REBALANCE_MS);
+        Thread spectatorAccept = new Thread(PokerServer::acceptSpectators,
+                "spectator-accept");
+        spectatorAccept.setDaemon(true);
+        spectatorAccept.start();
+        if (training) {
+            Thread trainer = new Thread(PokerServer::train, "cds-training");
+            trainer.setDaemon(true);
+            trainer.start();
+        }
+        if (entrants > 0) {
+            runTournament(entrants);
+        } else {
+            runThread();
         }
     }
 
     /**
-     * Shuffle deck the standard 7 times.
-     * Probably unnecessary, but traditional.
+     * Report shared timer.
+     *
+     * @return timer for deadlines and grace periods
      */
-    private static void shuffleDeck() {
-        final int standardShuffle = 7; //rule of thumb: shuffle 7 times
-        for (int j = 0; j < standardShuffle; j++) {
-            Collections.shuffle(DECK);
-        }
+    public static HashedWheelTimer timer() {
+        return TIMER;
     }
 
     /**
-     * Receive staged cards from client.
+     * Report game statistics.
      *
-     * @param arr
-     *          staged cards return by client
+     * @return stats pipeline
      */
-    public static void returnStage(final ArrayList<String> arr) {
-        //TODO return cards to deck as needed.
+    public static GameStats stats() {
+        return STATS;
     }
 
     /**
-     * Deals a hand to be passed to client.
+     * Report shard load, for monitoring.
      *
-     * @param handSize
-     *          size of hand needed
-     * @return hand of cards
-     */
-    public static ArrayList<String> dealHand(final int handSize) {
-        List<String> selection = DECK.subList(DECK.size() - handSize,
-                DECK.size());
-        ArrayList<String> hand = new ArrayList<>(selection);
-        selection.clear();
-        DECK.removeAll(hand);
-        return hand;
+     * @return busy fraction per shard over the last rebalance window
+     */
+    public static double[] shardLoad() {
+        return SHARDS.load();
     }
 
     /**
@@ -208,7 +305,7 @@ public final class PokerServer {
         try {
             while (!valid) {
                 System.out.print("\nPlease enter the desired number of "
-                        + "connections, or press enter to default to "
+                        + "seats per table, or press enter to default to "
                         + DEFAULT_CONNECTION_NUM + ": ");
                 usrInpt = br.readLine();
                 if (usrInpt.matches("^[+-]?\\d+$")) {
@@ -232,21 +329,181 @@ public final class PokerServer {
 
     /**
      * Thread creation instructions.
+     * Clients fill tables in order; a new table is opened whenever the
+     * current one has no free seats. A seat is only taken once a client
+     * has connected, so a failed connection cannot leave a table short.
      */
     private static void runThread() {
-        clients = new ServerConnection[connectionNum];
-        for (int j = 0; j < clients.length; j++) {
+        int tableNum = 0, playerNum = 0;
+        int seat;
+        Table table = new Table(tableNum++, connectionNum, SHARDS);
+        ServerConnection client;
+        Socket s;
+        while (true) {
             System.out.println("Waiting for connection...");
+            s = null;
+            try {
+                s = mainSocket.accept();
+                client = new ServerConnection("NAME", playerNum, table, -1);
+                client.connect(s);
+            } catch (IOException e) {
+                System.err.println("Unable to connect with client: " + e);
+                close(s);
+                continue;
+            }
+            playerNum++;
+            seat = table.takeSeat();
+            if (seat < 0) {
+                table = new Table(tableNum++, connectionNum, SHARDS);
+                seat = table.takeSeat();
+            }
+            client.moveTo(table, seat);
+            final ServerConnection seated = client;
+            final Table seatedAt = table;
+            table.execute(() -> seatedAt.seat(seated));
+            System.out.println("Connection established with client at "
+                    + "table " + table.getId() + ", seat " + (seat + 1));
+            client.start();
+        }
+    }
+
+    /**
+     * Close a client socket after a failed connection.
+     *
+     * @param s
+     *          socket to close, or null if none was accepted
+     */
+    private static void close(final Socket s) {
+        if (s == null) {
+            return;
+        }
+        try {
+            s.close();
+        } catch (IOException e) {
+            System.err.println("Unable to close client socket: " + e);
+        }
+    }
+
+    /**
+     * Seat entrants as they connect, then start the tournament once all
+     * have arrived. Tables are opened up front and balanced as they fill.
+     *
+     * @param entrants
+     *                 number of entrants
+     */
+    private static void runTournament(final int entrants) {
+        Tournament tournament = new Tournament(entrants, connectionNum, 0,
+                BLIND_LEVEL_MS, SHARDS);
+        int playerNum = 0;
+        ServerConnection client;
+        Socket s;
+        while (playerNum < entrants) {
+            System.out.println("Waiting for entrant " + (playerNum + 1)
+                    + " of " + entrants + "...");
+            client = null;
+            s = null;
+            try {
+                s = mainSocket.accept();
+                client = tournament.register("NAME", playerNum++);
+                client.connect(s);
+                final ServerConnection seated = client;
+                final Table seatedAt = client.getTable();
+                seatedAt.execute(() -> seatedAt.seat(seated));
+                System.out.println("Entrant seated at table "
+                        + seatedAt.getId() + ", seat "
+                        + (client.getSeat() + 1));
+                client.start();
+            } catch (IOException e) {
+                System.err.println("Unable to connect with entrant: " + e);
+                close(s);
+                if (client != null) {
+                    tournament.eliminated(client);
+                }
+            }
+        }
+        System.out.println("Starting tournament with "
+                + tournament.players() + " players");
+        tournament.start();
+    }
+
+    /**
+     * Rebalance shards, then schedule the next rebalance.
+     */
+    private static void rebalance() {
+        SHARDS.rebalance();
+        TIMER.schedule(PokerServer::rebalance, REBALANCE_MS);
+    }
+
+    /**
+     * Play a short scripted game against this server over loopback, with a
+     * spectator watching, then exit.
+     */
+    private static void train() {
+        InetAddress lo = InetAddress.getLoopbackAddress();
+        int rounds = 0;
+        try (Socket player = new Socket(lo, mainSocket.getLocalPort());
+                Socket watcher = new Socket()) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    player.getInputStream(), StandardCharsets.UTF_8));
+            OutputStream out = player.getOutputStream();
+            String card = null;
+            for (int k = 0; k < Table.HAND_SIZE; k++) {
+                card = readCard(in);
+            }
+            watcher.connect(new InetSocketAddress(lo,
+                    spectatorSocket.socket().getLocalPort()));
+            watcher.getOutputStream().write("0\n".getBytes(
+                    StandardCharsets.UTF_8));
+            for (int r = 0; r < TRAINING_ROUNDS && card != null; r++) {
+                out.write(("1\n" + card + "\n").getBytes(
+                        StandardCharsets.UTF_8));
+                out.flush();
+                card = readCard(in);
+                rounds += card == null ? 0 : 1;
+            }
+            if (watcher.getInputStream().read() < 0) {
+                System.err.println("Training spectator got nothing");
+            }
+        } catch (IOException e) {
+            System.err.println("Training run failed: " + e);
+        }
+        System.out.println("Training run played " + rounds + " rounds");
+        System.exit(0);
+    }
+
+    /**
+     * Read the next card sent to a player, skipping events.
+     *
+     * @param in
+     *           player's input
+     * @return card name, or null at end of stream
+     * @throws IOException
+     *             if the read fails
+     */
+    private static String readCard(final BufferedReader in)
+            throws IOException {
+        String line = in.readLine();
+        while (line != null && line.startsWith(OutboundMessage.EVENT_PREFIX)) {
+            line = in.readLine();
+        }
+        return line;
+    }
+
+    /**
+     * Accept spectators for as long as the server runs, handing each to a
+     * spectator loop to read the table it wants to watch.
+     */
+    private static void acceptSpectators() {
+        SocketChannel s;
+        while (true) {
             try {
-                clients[j] = new ServerConnection("NAME");
-                clients[j].connect(mainSocket.accept());
-                System.out.println("Connection established with client "
-                        + (j + 1));
-                clients[j].start();
-                //TODO better error messaging
+                s = spectatorSocket.accept();
             } catch (IOException e) {
-                System.err.println("Unable to connect with client" + e);
+                System.err.println("Unable to connect with spectator: " + e);
+                continue;
             }
+            spectatorLoops[Math.floorMod(NEXT_LOOP.getAndIncrement(),
+                    SPECTATOR_LOOP_NUM)].greet(s);
         }
     }
 }
\ No newline at end of file
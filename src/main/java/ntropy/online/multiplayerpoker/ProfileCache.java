@@ -0,0 +1,387 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Read-through cache over a {@link ProfileStore} for profiles and
+ * leaderboard slices.
+ * Entries are kept in least-recently-used order up to a size bound. An
+ * entry younger than the fresh time is served as is; one older than that
+ * but younger than the stale time is served at once while a single
+ * background refresh reloads it; anything older, or missing, is loaded
+ * inline. Writes go through to the store and replace the cached copy.
+ * Each entry records when its load started, so a load that started before
+ * a newer entry was cached, such as a refresh racing a save, is dropped.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class ProfileCache {
+
+    /**
+     * Backing store.
+     */
+    private final ProfileStore store;
+
+    /**
+     * Profiles by name, least recently used first.
+     */
+    private final Lru<String, PlayerProfile> profiles;
+
+    /**
+     * Leaderboard slices by {@link #sliceKey(int, int)}.
+     */
+    private final Lru<Long, List<PlayerProfile>> slices;
+
+    /**
+     * Nanoseconds an entry is served without a refresh.
+     */
+    private final long freshNanos;
+
+    /**
+     * Nanoseconds an entry may still be served while it is refreshed.
+     */
+    private final long staleNanos;
+
+    /**
+     * Keys being refreshed in the background; guarded by this.
+     */
+    private final HashSet<Object> refreshing = new HashSet<>();
+
+    /**
+     * Runs background refreshes, one at a time.
+     */
+    private final ExecutorService refresher
+            = Executors.newSingleThreadExecutor((Runnable r) -> {
+                Thread t = new Thread(r, "profile-refresh");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Create cache.
+     *
+     * @param s
+     *          backing store
+     * @param max
+     *            most profiles, and most leaderboard slices, kept
+     * @param freshMs
+     *                milliseconds an entry is served without a refresh
+     * @param staleMs
+     *                milliseconds an entry may be served while refreshed
+     */
+    public ProfileCache(final ProfileStore s, final int max,
+            final long freshMs, final long staleMs) {
+        store = s;
+        profiles = new Lru<>(max);
+        slices = new Lru<>(max);
+        freshNanos = freshMs * 1_000_000L;
+        staleNanos = Math.max(freshMs, staleMs) * 1_000_000L;
+    }
+
+    /**
+     * Get a profile, loading it if it is not cached.
+     *
+     * @param name
+     *             player name
+     * @return profile
+     * @throws IOException
+     *             if it had to be loaded and the store failed
+     */
+    public PlayerProfile profile(final String name) throws IOException {
+        Cached<PlayerProfile> e = lookup(profiles, name,
+                () -> store.load(name));
+        if (e != null) {
+            return e.value;
+        }
+        long since = System.nanoTime();
+        return put(profiles, name, store.load(name), since);
+    }
+
+    /**
+     * Start loading a profile in the background so a later
+     * {@link #profile(String)} is a hit.
+     *
+     * @param name
+     *             player name
+     */
+    public void prefetch(final String name) {
+        synchronized (this) {
+            if (profiles.containsKey(name)) {
+                return;
+            }
+        }
+        refresh(profiles, name, () -> store.load(name));
+    }
+
+    /**
+     * Save a profile through to the store and cache it.
+     * Cached leaderboard slices may lag until they expire.
+     *
+     * @param p
+     *          profile to save
+     * @throws IOException
+     *             if the store failed; the cache is left unchanged
+     */
+    public void save(final PlayerProfile p) throws IOException {
+        store.save(p);
+        put(profiles, p.getName(), p, System.nanoTime());
+    }
+
+    /**
+     * Get a leaderboard slice, loading it if it is not cached.
+     *
+     * @param from
+     *             rank of first entry, from 0
+     * @param count
+     *              most entries to return
+     * @return profiles in rank order
+     * @throws IOException
+     *             if it had to be loaded and the store failed
+     */
+    public List<PlayerProfile> leaderboard(final int from, final int count)
+            throws IOException {
+        Long key = sliceKey(from, count);
+        Cached<List<PlayerProfile>> e = lookup(slices, key,
+                () -> store.leaderboard(from, count));
+        if (e != null) {
+            return e.value;
+        }
+        long since = System.nanoTime();
+        return put(slices, key, store.leaderboard(from, count), since);
+    }
+
+    /**
+     * Report cached profiles.
+     *
+     * @return profile count
+     */
+    public synchronized int size() {
+        return profiles.size();
+    }
+
+    /**
+     * Find a usable cached entry, starting a refresh if it is stale.
+     *
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @param map
+     *            cache to look in
+     * @param key
+     *            entry key
+     * @param reload
+     *               background reload, if the entry is stale
+     * @return entry, or null if it must be loaded inline
+     */
+    private <K, V> Cached<V> lookup(final Lru<K, V> map, final K key,
+            final Load<V> reload) {
+        Cached<V> e;
+        synchronized (this) {
+            e = map.get(key);
+        }
+        if (e == null) {
+            return null;
+        }
+        long age = System.nanoTime() - e.loaded;
+        if (age < freshNanos) {
+            return e;
+        }
+        if (age >= staleNanos) {
+            return null;
+        }
+        refresh(map, key, reload);
+        return e;
+    }
+
+    /**
+     * Cache a value unless the entry was replaced by one loaded later.
+     *
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @param map
+     *            cache to put in
+     * @param key
+     *            entry key
+     * @param value
+     *              value loaded
+     * @param since
+     *              System.nanoTime() when the load started
+     * @return value now cached
+     */
+    private synchronized <K, V> V put(final Lru<K, V> map, final K key,
+            final V value, final long since) {
+        Cached<V> e = map.get(key);
+        if (e != null && e.loaded > since) {
+            return e.value;
+        }
+        map.put(key, new Cached<>(value, since));
+        return value;
+    }
+
+    /**
+     * Run a reload in the background unless one is already running for
+     * the same key. Failures leave the old entry to age out.
+     *
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     * @param map
+     *            cache to put in
+     * @param key
+     *            entry key
+     * @param load
+     *             reload to run
+     */
+    private <K, V> void refresh(final Lru<K, V> map, final K key,
+            final Load<V> load) {
+        synchronized (this) {
+            if (!refreshing.add(key)) {
+                return;
+            }
+        }
+        refresher.execute(() -> {
+            try {
+                long since = System.nanoTime();
+                put(map, key, load.run(), since);
+            } catch (IOException e) {
+                System.err.println("Profile refresh of " + key + " failed: "
+                        + e);
+            } finally {
+                synchronized (this) {
+                    refreshing.remove(key);
+                }
+            }
+        });
+    }
+
+    /**
+     * Pack a leaderboard slice into one key.
+     *
+     * @param from
+     *             rank of first entry
+     * @param count
+     *              entries in slice
+     * @return key
+     */
+    private static Long sliceKey(final int from, final int count) {
+        return (long) from << 32 | count & 0xFFFFFFFFL;
+    }
+
+    /**
+     * A reload that may fail.
+     *
+     * @param <V>
+     *            value type
+     */
+    private interface Load<V> {
+
+        /**
+         * Reload the entry from the store.
+         *
+         * @return value loaded
+         * @throws IOException
+         *             if the store failed
+         */
+        V run() throws IOException;
+    }
+
+    /**
+     * Cached value and when its load started.
+     *
+     * @param <V>
+     *            value type
+     */
+    private static final class Cached<V> {
+
+        /**
+         * Cached value.
+         */
+        private final V value;
+
+        /**
+         * System.nanoTime() when its load started.
+         */
+        private final long loaded;
+
+        /**
+         * Create entry.
+         *
+         * @param v
+         *          value loaded
+         * @param since
+         *              System.nanoTime() when the load started
+         */
+        private Cached(final V v, final long since) {
+            value = v;
+            loaded = since;
+        }
+    }
+
+    /**
+     * Access-ordered map that drops its least recently used entry once
+     * it outgrows its bound.
+     *
+     * @param <K>
+     *            key type
+     * @param <V>
+     *            value type
+     */
+    private static final class Lru<K, V> extends LinkedHashMap<K, Cached<V>> {
+
+        /**
+         * Serialization version.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Most entries kept.
+         */
+        private final int max;
+
+        /**
+         * Create empty map.
+         *
+         * @param m
+         *          most entries kept
+         */
+        private Lru(final int m) {
+            super(16, 0.75f, true);
+            max = m;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(
+                final Map.Entry<K, Cached<V>> eldest) {
+            return size() > max;
+        }
+    }
+}
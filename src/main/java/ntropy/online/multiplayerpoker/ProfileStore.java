@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where player profiles are kept; may be slow, so the server reads it
+ * through {@link ProfileCache}.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public interface ProfileStore {
+
+    /**
+     * Load a profile, creating it with a starting balance if it is new.
+     *
+     * @param name
+     *             player name
+     * @return profile
+     * @throws IOException
+     *             if the store cannot be read
+     */
+    PlayerProfile load(String name) throws IOException;
+
+    /**
+     * Save a profile.
+     *
+     * @param profile
+     *                profile to save
+     * @throws IOException
+     *             if the store cannot be written
+     */
+    void save(PlayerProfile profile) throws IOException;
+
+    /**
+     * Load a slice of the leaderboard, richest first.
+     *
+     * @param from
+     *             rank of first entry, from 0
+     * @param count
+     *              most entries to return
+     * @return profiles in rank order
+     * @throws IOException
+     *             if the store cannot be read
+     */
+    List<PlayerProfile> leaderboard(int from, int count) throws IOException;
+}
@@ -17,12 +17,17 @@
  */
 package ntropy.online.multiplayerpoker;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InterruptedIOException;
+import java.net.ProtocolException;
 import java.net.Socket;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Individual connections of client to server.
@@ -34,6 +39,38 @@ import java.util.ArrayList;
  */
 public final class ServerConnection extends Thread {
 
+    /**
+     * Outbound watermarks, in bytes.
+     */
+    private static final int LOW_WATER = 16 * 1024, HIGH_WATER = 64 * 1024;
+
+    /**
+     * Outbound bytes past which a client is dropped without waiting.
+     */
+    private static final int HARD_LIMIT = 4 * HIGH_WATER;
+
+    /**
+     * How long a client may stay over its high watermark before being
+     * dropped, in nanoseconds.
+     */
+    private static final long SLOW_DEADLINE_NS = 5_000_000_000L;
+
+    /**
+     * Longest line accepted from a client; card names are far shorter.
+     */
+    private static final int MAX_LINE = 32;
+
+    /**
+     * Line a client sends, followed by the new table's id, once it has
+     * seen EVT MOVE; draws it sends before that are for its old hand.
+     */
+    public static final String MOVE_ACK = "MOVED";
+
+    /**
+     * Lines a client may send in a burst, and per second after that.
+     */
+    private static final int BURST_LINES = 16, LINES_PER_SECOND = 4;
+
     /**
      * Array of cards returned.
      */
@@ -47,26 +84,63 @@ public final class ServerConnection extends Thread {
     /**
      * Output to client.
      */
-    private PrintWriter clientOutpt;
+    private OutboundQueue clientOutpt;
 
     /**
      * Connection to server.
      */
     private Socket connection;
 
+    /**
+     * Limits how fast lines are read from client.
+     */
+    private final TokenBucket inputLimit = new TokenBucket(BURST_LINES,
+            LINES_PER_SECOND);
+
+    /**
+     * Set while a slow-client check is scheduled.
+     */
+    private final AtomicBoolean slowCheckPending = new AtomicBoolean();
+
     /**
      * Name of client.
      */
     private final String name;
 
+    /**
+     * Player id of client, unique for the life of the server.
+     */
+    private final int playerId;
+
+    /**
+     * Table client is seated at; changes only when a tournament moves the
+     * client, on the old table's shard.
+     */
+    private volatile Table table;
+
+    /**
+     * Seat index of client at the table.
+     */
+    private volatile int seat;
+
     /**
      * Constructor for each connection thread.
      *
      * @param n
      *          name of client
+     * @param id
+     *           player id of client
+     * @param t
+     *          table client is seated at
+     * @param s
+     *          seat index of client
      */
-    public ServerConnection(final String n) {
+    public ServerConnection(final String n, final int id, final Table t,
+            final int s) {
         name = n;
+        playerId = id;
+        table = t;
+        seat = s;
     }
 
     /**
@@ -76,57 +150,216 @@ public final class ServerConnection extends Thread {
     public void run() {
         String inptLine;
         int numCardsRet;
-        ArrayList<String> passBack;
-        try {
-        clientInpt = new BufferedReader(
-                new InputStreamReader(
-                        connection.getInputStream()));
-        clientOutpt = new PrintWriter(connection.getOutputStream(), true);
-        } catch (IOException e) {
-            System.err.println("I/O issue with client: " + e);
-            //DEBUG
-            System.exit(0);
-        }
         while (true) {
             try {
-                numCardsRet = Integer.parseInt(clientInpt.readLine());
+                inptLine = readLine();
+                if (inptLine.matches("^" + MOVE_ACK + " \\d{1,9}$")) {
+                    final int id = Integer.parseInt(inptLine.substring(
+                            MOVE_ACK.length() + 1));
+                    final Table t = table;
+                    t.execute(() -> t.moveAcknowledged(this, id));
+                    continue;
+                }
+                if (!inptLine.matches("^\\d$")) {
+                    throw new ProtocolException("Bad card count: " + inptLine);
+                }
+                numCardsRet = Integer.parseInt(inptLine);
+                if (numCardsRet > Table.HAND_SIZE) {
+                    throw new ProtocolException("Too many cards returned: "
+                            + numCardsRet);
+                }
                 while (cardStaging.size() < numCardsRet) {
-                    inptLine = clientInpt.readLine();
-                    if (inptLine != null) {
-                        cardStaging.add(inptLine);
+                    inptLine = readLine();
+                    if (!inptLine.matches("^[A-Za-z]+$")) {
+                        throw new ProtocolException("Bad card name: "
+                                + inptLine);
                     }
+                    cardStaging.add(inptLine);
                 }
-                PokerServer.returnStage(cardStaging);
+                final ArrayList<String> staged = new ArrayList<>(cardStaging);
                 cardStaging.clear();
-                passBack = PokerServer.dealHand(numCardsRet);
-                passBack.forEach((String s) -> {
-                    clientOutpt.println(s);
-                });
-                //TODO card staging that adds back cards turned in after the
-                //current round
-                //TODO tell each client how many cards current client took
-                //TODO add deck implementation
+                final Table t = table;
+                t.execute(() -> t.requestDraw(this, staged));
             } catch (IOException e) {
-                System.err.println("I/O error with client: " + e);
+                System.err.println("Closing client " + name + " at seat "
+                        + seat + ": " + e);
+                cardStaging.clear();
+                final Table t = table;
+                t.execute(() -> t.disconnected(this));
                 clientOutpt.close();
                 try {
                     clientInpt.close();
                 } catch (IOException ie) {
                     System.err.println("Unable to close server input: " + ie);
                 }
-                //DEBUG
-                System.exit(0);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Read one line from client, no faster than its rate limit allows.
+     * Waiting for a token blocks only this client's thread, and the client
+     * is slowed down by TCP flow control rather than burning a core.
+     *
+     * @return line read, without terminator
+     * @throws IOException
+     *             on end of stream, an over-long line, or read failure
+     */
+    private String readLine() throws IOException {
+        long waitNs;
+        while ((waitNs = inputLimit.tryAcquire()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNs);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted while throttled");
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = clientInpt.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("Client closed connection");
+            }
+            if (c != '\r') {
+                if (sb.length() == MAX_LINE) {
+                    throw new ProtocolException("Line too long");
+                }
+                sb.append((char) c);
             }
         }
+        return sb.toString();
     }
 
     /**
-     * Accepts connection to main server socket.
+     * Accepts connection to main server socket and opens its streams.
      *
      * @param s
      *          server socket passed
+     * @throws IOException
+     *             if the socket streams cannot be opened
      */
-    public void connect(final Socket s) {
+    public void connect(final Socket s) throws IOException {
         connection = s;
+        clientInpt = new BufferedReader(
+                new InputStreamReader(
+                        connection.getInputStream()));
+        clientOutpt = new OutboundQueue("outbound-" + name,
+                new BufferedOutputStream(connection.getOutputStream()),
+                LOW_WATER, HIGH_WATER, this::closeSocket);
+        clientOutpt.start();
+    }
+
+    /**
+     * Queue a pre-encoded message for client.
+     * Never blocks, so it is safe to call from other threads, e.g. during a
+     * table broadcast. Players are never sent partial state, so nothing is
+     * dropped; instead a client that stays too far behind is disconnected.
+     *
+     * @param msg
+     *            message to send
+     */
+    public void send(final OutboundMessage msg) {
+        if (!clientOutpt.put(msg)) {
+            return;
+        }
+        long behindNs = clientOutpt.overHighWaterNanos();
+        if (clientOutpt.queuedBytes() > HARD_LIMIT
+                || behindNs > SLOW_DEADLINE_NS) {
+            dropSlow();
+        } else if (behindNs > 0 && slowCheckPending.compareAndSet(false,
+                true)) {
+            PokerServer.timer().schedule(this::checkSlow,
+                    TimeUnit.NANOSECONDS.toMillis(SLOW_DEADLINE_NS));
+        }
+    }
+
+    /**
+     * Drop client if it is still behind once its deadline has passed, even
+     * if nothing else has been sent to it since.
+     */
+    private void checkSlow() {
+        slowCheckPending.set(false);
+        long behindNs = clientOutpt.overHighWaterNanos();
+        if (behindNs >= SLOW_DEADLINE_NS) {
+            dropSlow();
+        } else if (behindNs > 0 && slowCheckPending.compareAndSet(false,
+                true)) {
+            PokerServer.timer().schedule(this::checkSlow,
+                    TimeUnit.NANOSECONDS.toMillis(SLOW_DEADLINE_NS
+                            - behindNs) + 1);
+        }
+    }
+
+    /**
+     * Disconnect a client that fell too far behind.
+     */
+    private void dropSlow() {
+        kick("fell too far behind");
+    }
+
+    /**
+     * Disconnect client; its thread then takes the usual disconnect path.
+     *
+     * @param reason
+     *               reason to log
+     */
+    public void kick(final String reason) {
+        System.err.println("Dropping client " + name + " at seat " + seat
+                + ": " + reason);
+        clientOutpt.close();
+    }
+
+    /**
+     * Close socket, which also ends a blocked read on this thread.
+     */
+    private void closeSocket() {
+        try {
+            connection.close();
+        } catch (IOException e) {
+            System.err.println("Unable to close client socket: " + e);
+        }
+    }
+
+    /**
+     * Report player id of client.
+     *
+     * @return player id
+     */
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * Report seat index of client.
+     *
+     * @return seat index
+     */
+    public int getSeat() {
+        return seat;
+    }
+
+    /**
+     * Report table client is seated at.
+     *
+     * @return table
+     */
+    public Table getTable() {
+        return table;
+    }
+
+    /**
+     * Move client to a seat at another table; its later actions go there.
+     * Called once a new client has connected and taken its seat, and
+     * otherwise by the old table only, while handing the client over.
+     *
+     * @param t
+     *          new table
+     * @param s
+     *          seat index at new table
+     */
+    void moveTo(final Table t, final int s) {
+        seat = s;
+        table = t;
     }
 }
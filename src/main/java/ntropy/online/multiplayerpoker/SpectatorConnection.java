@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+
+/**
+ * Read-only connection of an observer to a table.
+ * Nothing is read from a spectator; it is only sent table state, through
+ * a non-blocking channel written by a shared {@link SpectatorLoop}.
+ * A spectator that falls behind has its updates dropped and is marked
+ * stale; once it catches up the feed sends it a fresh snapshot instead of
+ * the deltas it missed.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class SpectatorConnection {
+
+    /**
+     * Outbound watermarks, in bytes.
+     */
+    private static final int LOW_WATER = 4 * 1024, HIGH_WATER = 16 * 1024;
+
+    /**
+     * Connection to spectator, in non-blocking mode.
+     */
+    private final SocketChannel channel;
+
+    /**
+     * Loop that writes to this spectator.
+     */
+    private final SpectatorLoop loop;
+
+    /**
+     * Output waiting to be written; guarded by this.
+     */
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+
+    /**
+     * Bytes waiting to be written; guarded by this.
+     */
+    private long queuedBytes;
+
+    /**
+     * Set when an update was dropped and a snapshot is owed.
+     */
+    private volatile boolean stale;
+
+    /**
+     * Set once closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Wrap an accepted spectator channel.
+     *
+     * @param ch
+     *           channel accepted from spectator port
+     * @param l
+     *          loop to write through
+     * @throws IOException
+     *             if the channel cannot be made non-blocking
+     */
+    public SpectatorConnection(final SocketChannel ch, final SpectatorLoop l)
+            throws IOException {
+        channel = ch;
+        loop = l;
+        channel.configureBlocking(false);
+    }
+
+    /**
+     * Queue a pre-encoded message for spectator, dropping it if the
+     * spectator is too far behind or already waiting on a snapshot.
+     *
+     * @param msg
+     *            message to send
+     */
+    public void send(final OutboundMessage msg) {
+        if (stale || !offer(msg)) {
+            stale = true;
+        }
+    }
+
+    /**
+     * Queue a snapshot, clearing stale state if it fits.
+     *
+     * @param msg
+     *            snapshot to send
+     */
+    public void resync(final OutboundMessage msg) {
+        stale = !offer(msg);
+    }
+
+    /**
+     * Report whether spectator missed updates and has since caught up
+     * enough to be sent a snapshot.
+     *
+     * @return true if a snapshot should be sent
+     */
+    public boolean needsResync() {
+        if (!stale) {
+            return false;
+        }
+        synchronized (this) {
+            return queuedBytes <= LOW_WATER;
+        }
+    }
+
+    /**
+     * Close connection to spectator; also cancels its channel's selection.
+     */
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            queuedBytes = 0;
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Unable to close spectator socket: " + e);
+        }
+    }
+
+    /**
+     * Report whether connection has been closed.
+     *
+     * @return true if closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Report channel, for the writing loop.
+     *
+     * @return channel
+     */
+    SocketChannel channel() {
+        return channel;
+    }
+
+    /**
+     * Write queued output until it is gone or the socket is full; called
+     * by the writing loop only.
+     *
+     * @return true if nothing is left to write
+     * @throws IOException
+     *             if the write fails
+     */
+    synchronized boolean drain() throws IOException {
+        ByteBuffer head;
+        while ((head = pending.peek()) != null) {
+            int written = channel.write(head);
+            queuedBytes -= written;
+            if (head.hasRemaining()) {
+                return false;
+            }
+            pending.poll();
+        }
+        return true;
+    }
+
+    /**
+     * Enqueue a message unless it would go past the high watermark, and
+     * wake the writing loop if the queue was empty.
+     *
+     * @param msg
+     *            message to send
+     * @return false if dropped because queue is full or closed
+     */
+    private boolean offer(final OutboundMessage msg) {
+        boolean wasEmpty;
+        synchronized (this) {
+            if (closed || queuedBytes + msg.size() > HIGH_WATER) {
+                return false;
+            }
+            wasEmpty = pending.isEmpty();
+            pending.add(msg.buffer());
+            queuedBytes += msg.size();
+        }
+        if (wasEmpty) {
+            loop.wantWrite(this);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams table state to spectators.
+ * A joining spectator is sent "EVT SNAPSHOT n v0 .. vn-1"; afterwards, at
+ * most once per flush interval, every spectator is sent the same
+ * "EVT DELTA slot value ..." message listing only slots that changed.
+ * Flushes run on the table's shard, put there by the shared timer only
+ * while someone is watching, so an unwatched table costs nothing.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class SpectatorFeed {
+
+    /**
+     * Default time between delta flushes, in milliseconds.
+     */
+    public static final long DEFAULT_FLUSH_MS = 100;
+
+    /**
+     * Table being watched.
+     */
+    private final Table table;
+
+    /**
+     * State of table being watched.
+     */
+    private final TableState state;
+
+    /**
+     * Time between delta flushes, in milliseconds.
+     */
+    private final long flushMs;
+
+    /**
+     * Watching spectators.
+     */
+    private final CopyOnWriteArrayList<SpectatorConnection> spectators
+            = new CopyOnWriteArrayList<>();
+
+    /**
+     * Set while a flush is scheduled.
+     */
+    private final AtomicBoolean armed = new AtomicBoolean();
+
+    /**
+     * Set once the table has gone, so no more flushes are scheduled.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Guards published state and spectator joins.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * State last sent to spectators; guarded by lock.
+     */
+    private final int[] published;
+
+    /**
+     * Scratch copy of current state, only touched by flushes.
+     */
+    private final int[] current;
+
+    /**
+     * Version of state last copied.
+     */
+    private long version;
+
+    /**
+     * Create feed for a table.
+     *
+     * @param t
+     *          table to watch, whose shard runs the flushes
+     * @param s
+     *          state of table to watch
+     * @param ms
+     *           time between delta flushes, in milliseconds
+     */
+    public SpectatorFeed(final Table t, final TableState s, final long ms) {
+        table = t;
+        state = s;
+        flushMs = ms;
+        published = new int[s.size()];
+        current = new int[s.size()];
+    }
+
+    /**
+     * Add a spectator, sending it a snapshot of the last published state.
+     * Done under the feed lock so no delta can slip in between the snapshot
+     * and the spectator joining. A spectator of a table already gone is
+     * closed instead.
+     *
+     * @param sc
+     *           joining spectator
+     */
+    public void addSpectator(final SpectatorConnection sc) {
+        synchronized (lock) {
+            if (closed) {
+                sc.close();
+                return;
+            }
+            sc.send(snapshot());
+            spectators.add(sc);
+        }
+        arm();
+    }
+
+    /**
+     * Close every spectator, e.g. when the table goes away.
+     */
+    public void closeAll() {
+        closed = true;
+        synchronized (lock) {
+            for (SpectatorConnection sc : spectators) {
+                sc.close();
+            }
+            spectators.clear();
+        }
+    }
+
+    /**
+     * Report number of spectators.
+     *
+     * @return spectator count
+     */
+    public int size() {
+        return spectators.size();
+    }
+
+    /**
+     * Schedule the next flush, unless one is already scheduled.
+     */
+    private void arm() {
+        if (!closed && armed.compareAndSet(false, true)) {
+            PokerServer.timer().schedule(() -> table.execute(this::tick),
+                    flushMs);
+        }
+    }
+
+    /**
+     * Run a scheduled flush on the table's shard, scheduling the next one
+     * only if someone is still watching. The flag is cleared first, so a
+     * spectator joining during the flush schedules the next one itself.
+     */
+    private void tick() {
+        armed.set(false);
+        flush();
+        if (!spectators.isEmpty()) {
+            arm();
+        }
+    }
+
+    /**
+     * Send one coalesced delta of everything changed since last flush.
+     * Spectators that fell behind get a snapshot instead, even when
+     * nothing has changed.
+     */
+    private void flush() {
+        long latest = state.copyIfChanged(current, version);
+        synchronized (lock) {
+            OutboundMessage delta = null;
+            if (latest != version) {
+                version = latest;
+                delta = delta();
+            }
+            OutboundMessage snapshot = null;
+            for (SpectatorConnection sc : spectators) {
+                if (sc.isClosed()) {
+                    spectators.remove(sc);
+                } else if (sc.needsResync()) {
+                    if (snapshot == null) {
+                        snapshot = snapshot();
+                    }
+                    sc.resync(snapshot);
+                } else if (delta != null) {
+                    sc.send(delta);
+                }
+            }
+        }
+    }
+
+    /**
+     * Publish the current state; lock must be held.
+     *
+     * @return delta listing each changed slot, or null if none changed
+     */
+    private OutboundMessage delta() {
+        int changed = 0;
+        for (int j = 0; j < current.length; j++) {
+            if (current[j] != published[j]) {
+                changed++;
+            }
+        }
+        if (changed == 0) {
+            return null;
+        }
+        Object[] fields = new Object[changed * 2];
+        int k = 0;
+        for (int j = 0; j < current.length; j++) {
+            if (current[j] != published[j]) {
+                fields[k++] = j;
+                fields[k++] = current[j];
+                published[j] = current[j];
+            }
+        }
+        return OutboundMessage.event("DELTA", fields);
+    }
+
+    /**
+     * Encode last published state; lock must be held.
+     *
+     * @return snapshot message
+     */
+    private OutboundMessage snapshot() {
+        Object[] fields = new Object[published.length + 1];
+        fields[0] = published.length;
+        for (int j = 0; j < published.length; j++) {
+            fields[j + 1] = published[j];
+        }
+        return OutboundMessage.event("SNAPSHOT", fields);
+    }
+}
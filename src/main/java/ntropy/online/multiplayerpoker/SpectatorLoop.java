@@ -0,0 +1,317 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * One of a small, fixed set of threads that serve spectators.
+ * Each serves many spectators over non-blocking channels: a spectator with
+ * a stalled TCP window only stops being selected for writing, so it never
+ * holds up the thread or anyone else on it. A newly accepted spectator is
+ * read here too, until it has named the table it wants to watch on its
+ * own line; one that has not done so in time is closed. A watching
+ * spectator stays selected for reading, so one that hangs up is closed
+ * at once rather than on its next failed write.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class SpectatorLoop extends Thread {
+
+    /**
+     * Longest line a spectator may send naming its table, in bytes.
+     */
+    private static final int HELLO_MAX = 16;
+
+    /**
+     * How long a spectator has to name the table it wants, in milliseconds.
+     */
+    private static final long HELLO_MS = 5_000;
+
+    /**
+     * Tables spectators may ask for.
+     */
+    private final TableShards shards;
+
+    /**
+     * Selects spectators whose sockets can take more bytes.
+     */
+    private final Selector selector;
+
+    /**
+     * Scratch space for anything a watching spectator sends, which is
+     * ignored; only touched by this thread.
+     */
+    private final ByteBuffer discard = ByteBuffer.allocate(256);
+
+    /**
+     * Spectators with newly queued output, to be selected for writing.
+     */
+    private final ConcurrentLinkedQueue<SpectatorConnection> ready
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Newly accepted spectators, to be selected for reading.
+     */
+    private final ConcurrentLinkedQueue<SocketChannel> greeting
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Create loop; call start() to begin serving.
+     *
+     * @param name
+     *             thread name
+     * @param s
+     *          tables spectators may ask for
+     * @throws IOException
+     *             if a selector cannot be opened
+     */
+    public SpectatorLoop(final String name, final TableShards s)
+            throws IOException {
+        super(name);
+        shards = s;
+        selector = Selector.open();
+        setDaemon(true);
+    }
+
+    /**
+     * Take a newly accepted spectator and wait for it to name its table.
+     * Safe to call from any thread.
+     *
+     * @param ch
+     *           channel of accepted spectator
+     */
+    void greet(final SocketChannel ch) {
+        greeting.add(ch);
+        selector.wakeup();
+    }
+
+    /**
+     * Ask for a spectator's queued output to be written.
+     * Safe to call from any thread.
+     *
+     * @param sc
+     *           spectator with output queued
+     */
+    void wantWrite(final SpectatorConnection sc) {
+        ready.add(sc);
+        selector.wakeup();
+    }
+
+    /**
+     * Thread instructions.
+     */
+    @Override
+    public void run() {
+        while (!isInterrupted()) {
+            try {
+                selector.select();
+            } catch (IOException e) {
+                System.err.println("Spectator selector failed: " + e);
+                return;
+            }
+            SocketChannel ch;
+            while ((ch = greeting.poll()) != null) {
+                listen(ch);
+            }
+            SpectatorConnection sc;
+            while ((sc = ready.poll()) != null) {
+                register(sc);
+            }
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.isValid() && key.isReadable()) {
+                    if (key.attachment() instanceof SpectatorConnection) {
+                        read(key);
+                    } else {
+                        readHello(key);
+                    }
+                }
+                if (key.isValid() && key.isWritable()) {
+                    write(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Select a new spectator for reading, closing it if it has not named a
+     * table once its time is up.
+     *
+     * @param ch
+     *           channel of accepted spectator
+     */
+    private void listen(final SocketChannel ch) {
+        try {
+            ch.configureBlocking(false);
+            SelectionKey key = ch.register(selector, SelectionKey.OP_READ,
+                    ByteBuffer.allocate(HELLO_MAX));
+            PokerServer.timer().schedule(() -> {
+                if (!(key.attachment() instanceof SpectatorConnection)) {
+                    close(ch);
+                }
+            }, HELLO_MS);
+        } catch (IOException e) {
+            System.err.println("Unable to connect with spectator: " + e);
+            close(ch);
+        }
+    }
+
+    /**
+     * Read what a new spectator has sent so far, and once it has named a
+     * table, start watching it from the same key.
+     *
+     * @param key
+     *            key of a readable new spectator
+     */
+    private void readHello(final SelectionKey key) {
+        SocketChannel ch = (SocketChannel) key.channel();
+        ByteBuffer buf = (ByteBuffer) key.attachment();
+        try {
+            if (ch.read(buf) < 0) {
+                throw new EOFException("Spectator left before naming a table");
+            }
+            String hello = line(buf);
+            if (hello == null) {
+                if (!buf.hasRemaining()) {
+                    throw new ProtocolException("Spectator hello too long");
+                }
+                return;
+            }
+            Table table = hello.matches("^\\d{1,9}$")
+                    ? shards.get(Integer.parseInt(hello)) : null;
+            if (table == null) {
+                throw new ProtocolException(
+                        "Spectator asked for unknown table: " + hello);
+            }
+            SpectatorConnection sc = new SpectatorConnection(ch, this);
+            key.attach(sc);
+            table.watch(sc);
+            System.out.println("Spectator joined table " + table.getId());
+        } catch (IOException e) {
+            System.err.println("Unable to connect with spectator: " + e);
+            close(ch);
+        }
+    }
+
+    /**
+     * Read and ignore whatever a watching spectator sends, closing it once
+     * it hangs up.
+     *
+     * @param key
+     *            key of a readable watching spectator
+     */
+    private void read(final SelectionKey key) {
+        SpectatorConnection sc = (SpectatorConnection) key.attachment();
+        try {
+            discard.clear();
+            if (((SocketChannel) key.channel()).read(discard) < 0) {
+                sc.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to read from spectator: " + e);
+            sc.close();
+        }
+    }
+
+    /**
+     * Find the first complete line read so far.
+     *
+     * @param buf
+     *            bytes read, from 0 to position
+     * @return line without its terminator, trimmed, or null if no line
+     *         has ended yet
+     */
+    private static String line(final ByteBuffer buf) {
+        for (int j = 0; j < buf.position(); j++) {
+            if (buf.get(j) == '\n') {
+                return new String(buf.array(), 0, j,
+                        StandardCharsets.US_ASCII).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Close a spectator's channel, which also stops it being selected.
+     *
+     * @param ch
+     *           channel to close
+     */
+    private static void close(final SocketChannel ch) {
+        try {
+            ch.close();
+        } catch (IOException e) {
+            System.err.println("Unable to close spectator: " + e);
+        }
+    }
+
+    /**
+     * Select a spectator for writing, registering its channel the first
+     * time.
+     *
+     * @param sc
+     *           spectator with output queued
+     */
+    private void register(final SpectatorConnection sc) {
+        SelectionKey key = sc.channel().keyFor(selector);
+        try {
+            if (key == null) {
+                sc.channel().register(selector, SelectionKey.OP_READ
+                        | SelectionKey.OP_WRITE, sc);
+            } else if (key.isValid()) {
+                key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (ClosedChannelException e) {
+            sc.close();
+        }
+    }
+
+    /**
+     * Write as much as the socket takes, and stop selecting the spectator
+     * for writing once its queue is empty.
+     *
+     * @param key
+     *            key of a writable spectator
+     */
+    private void write(final SelectionKey key) {
+        SpectatorConnection sc = (SpectatorConnection) key.attachment();
+        try {
+            if (sc.drain()) {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to write to spectator: " + e);
+            sc.close();
+        }
+    }
+}
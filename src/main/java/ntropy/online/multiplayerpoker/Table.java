@@ -0,0 +1,770 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A single game of 5-card draw and everything it owns.
+ * Apart from {@link #execute(Runnable)} and the seat counter, every method
+ * here must run on the table's shard via execute; table state is confined
+ * to that one thread at a time and takes no locks.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class Table {
+
+    /**
+     * Cards held by a seated player.
+     */
+    public static final int HAND_SIZE = 5;
+
+    /**
+     * How long a seated client has to act before standing pat, in
+     * milliseconds.
+     */
+    private static final long ACTION_DEADLINE_MS = 60_000;
+
+    /**
+     * How long a disconnected client is shown as away before its seat is
+     * freed, in milliseconds. There is no reconnecting to the seat.
+     */
+    private static final long DISCONNECT_GRACE_MS = 30_000;
+
+    /**
+     * How long an empty table waits before being reaped, in milliseconds.
+     */
+    private static final long IDLE_TABLE_MS = 300_000;
+
+    /**
+     * Card handling.
+     */
+    private final Deck deck = new Deck();
+
+    /**
+     * Table id.
+     */
+    private final int id;
+
+    /**
+     * Number of seats.
+     */
+    private final int seats;
+
+    /**
+     * Seats handed out so far.
+     */
+    private final AtomicInteger seatsTaken = new AtomicInteger();
+
+    /**
+     * Cards each seat holds, as the server dealt them.
+     */
+    private final HandRegistry hands;
+
+    /**
+     * Clients by seat; null if the seat is empty or its client is away.
+     */
+    private final ServerConnection[] seated;
+
+    /**
+     * Cards each seat asked for this round, or -1 if it has not acted.
+     */
+    private final int[] drawCounts;
+
+    /**
+     * Set for a seat moved here until its client acknowledges the move,
+     * since any draw sent before that was meant for its old hand.
+     */
+    private final boolean[] movedIn;
+
+    /**
+     * Pending action deadline per seat, or null if the seat owes nothing.
+     */
+    private final HashedWheelTimer.Timeout[] deadlines;
+
+    /**
+     * Bumped per seat whenever its deadline is armed or cancelled, so a
+     * deadline that fired just before being cancelled is ignored.
+     */
+    private final int[] deadlineGen;
+
+    /**
+     * Reused round deal buffer, {@link #HAND_SIZE} slots per seat.
+     */
+    private final int[] dealt;
+
+    /**
+     * Seats that have been filled, whether or not still occupied.
+     */
+    private int seatsFilled;
+
+    /**
+     * Current draw round; 0 until the hand is dealt.
+     */
+    private int round;
+
+    /**
+     * Shards hosting this table.
+     */
+    private final TableShards shards;
+
+    /**
+     * Table event fan-out to seated clients.
+     */
+    private final TableBroadcaster broadcaster = new TableBroadcaster();
+
+    /**
+     * Public table info shown to spectators.
+     */
+    private final TableState tableState;
+
+    /**
+     * Coalesced state stream to spectators.
+     */
+    private final SpectatorFeed spectatorFeed;
+
+    /**
+     * Tasks waiting to run on this table's shard.
+     */
+    private final ConcurrentLinkedQueue<Runnable> mailbox
+            = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Set while this table is queued on, or running on, a shard worker.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Shard currently running this table.
+     */
+    private volatile int shard;
+
+    /**
+     * Total time spent running this table's tasks.
+     */
+    private volatile long busyNanos;
+
+    /**
+     * Busy time at the last rebalance; rebalancer only.
+     */
+    private long lastBusyNanos;
+
+    /**
+     * Tournament this table belongs to, or null for a cash table.
+     */
+    private volatile Tournament tournament;
+
+    /**
+     * Pending reap of the table while it is empty.
+     */
+    private HashedWheelTimer.Timeout idleReap;
+
+    /**
+     * Set once a tournament has broken this table; it is reaped as soon
+     * as the last player has moved off.
+     */
+    private boolean retiring;
+
+    /**
+     * Set once the table has been reaped.
+     */
+    private volatile boolean reaped;
+
+    /**
+     * Create a table with a freshly shuffled deck and add it to its shard.
+     *
+     * @param i
+     *          table id
+     * @param seatNum
+     *                number of seats
+     * @param s
+     *          shards to host table on
+     */
+    public Table(final int i, final int seatNum, final TableShards s) {
+        id = i;
+        seats = seatNum;
+        shards = s;
+        hands = new HandRegistry(seatNum);
+        seated = new ServerConnection[seatNum];
+        drawCounts = new int[seatNum];
+        movedIn = new boolean[seatNum];
+        deadlines = new HashedWheelTimer.Timeout[seatNum];
+        deadlineGen = new int[seatNum];
+        dealt = new int[seatNum * HAND_SIZE];
+        deck.shuffle();
+        tableState = new TableState(seatNum);
+        tableState.deckRemaining(deck.remaining());
+        spectatorFeed = new SpectatorFeed(this, tableState,
+                SpectatorFeed.DEFAULT_FLUSH_MS);
+        shards.add(this);
+    }
+
+    /**
+     * Run a task on this table's shard.
+     * Safe to call from any thread.
+     *
+     * @param task
+     *             task to run
+     */
+    public void execute(final Runnable task) {
+        shards.dispatch(this, task);
+    }
+
+    /**
+     * Hand out the next free seat index.
+     * Safe to call from any thread.
+     *
+     * @return seat index, or -1 if the table is full or reaped
+     */
+    public int takeSeat() {
+        if (reaped) {
+            return -1;
+        }
+        int seat = seatsTaken.getAndIncrement();
+        return seat < seats ? seat : -1;
+    }
+
+    /**
+     * Seat a connected client, cancelling any pending reap. Once every
+     * seat is filled the hand is dealt, unless a tournament starts it.
+     *
+     * @param c
+     *          client taking a seat
+     */
+    public void seat(final ServerConnection c) {
+        if (idleReap != null) {
+            idleReap.cancel();
+            idleReap = null;
+        }
+        seated[c.getSeat()] = c;
+        movedIn[c.getSeat()] = false;
+        broadcaster.seat(c);
+        tableState.seat(c.getSeat(), 0);
+        if (++seatsFilled == seats && tournament == null) {
+            startHand();
+        }
+    }
+
+    /**
+     * Deal the first hand now, without waiting for every seat to fill.
+     */
+    public void start() {
+        if (round == 0) {
+            startHand();
+        }
+    }
+
+    /**
+     * Hand a client over to a seat at another table, which deals it in.
+     * A client that is away is handed over still away. If the client is
+     * not here, because an earlier move has yet to reach this table or has
+     * already taken it elsewhere, the handover follows the client.
+     *
+     * @param c
+     *          client moving
+     * @param to
+     *           table to move to
+     * @param s
+     *          seat index reserved at that table
+     */
+    public void transferOut(final ServerConnection c, final Table to,
+            final int s) {
+        Table t = c.getTable();
+        if (t != this) {
+            t.execute(() -> t.transferOut(c, to, s));
+            return;
+        }
+        int seat = c.getSeat();
+        boolean away = seated[seat] != c;
+        if (!away) {
+            seated[seat] = null;
+            cancelDeadline(seat);
+        }
+        drawCounts[seat] = 0;
+        deck.discard(hands.clear(seat));
+        broadcaster.unseat(c);
+        tableState.unseat(seat);
+        tableState.deckRemaining(deck.remaining());
+        broadcaster.broadcast(OutboundMessage.event("LEAVE", seat));
+        //queue the arrival first, so a later move that finds the client
+        //at its new table always runs after it
+        to.execute(() -> to.transferIn(c, s, away));
+        c.moveTo(to, s);
+        if (round > 0) {
+            finishRoundIfReady();
+        }
+        if (retiring) {
+            reap();
+        }
+    }
+
+    /**
+     * Seat a client moved here from another table. If a hand is under way
+     * the client is dealt a fresh hand and acts from the current round.
+     *
+     * @param c
+     *          client arriving
+     * @param seat
+     *             seat index reserved for client
+     * @param away
+     *             true if the client disconnected and is not to be seated
+     */
+    private void transferIn(final ServerConnection c, final int seat,
+            final boolean away) {
+        if (away) {
+            return;
+        }
+        seated[seat] = c;
+        movedIn[seat] = true;
+        broadcaster.seat(c);
+        tableState.seat(seat, 0);
+        c.send(OutboundMessage.event("MOVE", id, seat));
+        if (round == 0) {
+            return;
+        }
+        int[] counts = new int[seats];
+        counts[seat] = HAND_SIZE;
+        if (!deck.dealRound(counts, dealt, HAND_SIZE)) {
+            System.err.println("Table " + id + " ran out of cards");
+            return;
+        }
+        long mask = 0;
+        ArrayList<String> names = new ArrayList<>(HAND_SIZE);
+        for (int k = 0; k < HAND_SIZE; k++) {
+            mask |= 1L << dealt[seat * HAND_SIZE + k];
+            names.add(Deck.name(dealt[seat * HAND_SIZE + k]));
+        }
+        hands.give(seat, mask);
+        c.send(OutboundMessage.lines(names));
+        tableState.seat(seat, HAND_SIZE);
+        tableState.deckRemaining(deck.remaining());
+        drawCounts[seat] = -1;
+        armDeadline(seat);
+        PokerServer.stats().handStarted(id, c.getPlayerId());
+    }
+
+    /**
+     * Send a message to every seated client.
+     *
+     * @param msg
+     *            message to send
+     */
+    public void announce(final OutboundMessage msg) {
+        broadcaster.broadcast(msg);
+    }
+
+    /**
+     * Deal every seat its starting hand in one round.
+     */
+    private void startHand() {
+        for (int s = 0; s < seats; s++) {
+            drawCounts[s] = seated[s] == null ? 0 : HAND_SIZE;
+        }
+        round = 0;
+        dealRound();
+    }
+
+    /**
+     * Take a client's discards for this round, after checking the client
+     * was dealt every one of them. Replacements are dealt once every seat
+     * has acted. A draw out of turn, such as a second click after standing
+     * pat or timing out, is rejected, as is any draw from a client moved
+     * here that has not yet acknowledged the move; a client returning cards
+     * it does not hold is dropped.
+     *
+     * @param c
+     *          client drawing
+     * @param arr
+     *          staged cards return by client
+     */
+    public void requestDraw(final ServerConnection c,
+            final List<String> arr) {
+        int seat = c.getSeat();
+        if (c.getTable() != this || seated[seat] != c) {
+            return; //moved away; sent a fresh hand at its new table
+        }
+        if (round == 0 || drawCounts[seat] >= 0 || movedIn[seat]) {
+            c.send(OutboundMessage.event("REJECT", seat));
+            return;
+        }
+        long returned = Deck.mask(arr);
+        if (!hands.take(seat, returned)) {
+            c.kick("returned cards it was not dealt");
+            return;
+        }
+        cancelDeadline(seat);
+        deck.discard(returned);
+        drawCounts[seat] = arr.size();
+        finishRoundIfReady();
+    }
+
+    /**
+     * Accept draws again from a client moved here, once it has seen the
+     * move. An acknowledgement of an earlier move, to another table, is
+     * ignored.
+     *
+     * @param c
+     *          client acknowledging
+     * @param tableId
+     *                id of the table the client was told it moved to
+     */
+    public void moveAcknowledged(final ServerConnection c,
+            final int tableId) {
+        int seat = c.getSeat();
+        if (tableId == id && c.getTable() == this && seated[seat] == c) {
+            movedIn[seat] = false;
+        }
+    }
+
+    /**
+     * Give a seat that owes an action this round its deadline, replacing
+     * any earlier one.
+     *
+     * @param seat
+     *          seat that must act
+     */
+    private void armDeadline(final int seat) {
+        cancelDeadline(seat);
+        ServerConnection c = seated[seat];
+        if (c == null) {
+            return;
+        }
+        int gen = deadlineGen[seat];
+        deadlines[seat] = PokerServer.timer().schedule(
+                () -> execute(() -> actionTimedOut(c, gen)),
+                ACTION_DEADLINE_MS);
+    }
+
+    /**
+     * Drop a seat's pending deadline, if any.
+     *
+     * @param seat
+     *          seat no longer owing an action
+     */
+    private void cancelDeadline(final int seat) {
+        deadlineGen[seat]++;
+        if (deadlines[seat] != null) {
+            deadlines[seat].cancel();
+            deadlines[seat] = null;
+        }
+    }
+
+    /**
+     * Stand a client pat if it has not acted yet this round.
+     *
+     * @param c
+     *          client that timed out
+     * @param gen
+     *          deadline generation armed for the seat
+     */
+    private void actionTimedOut(final ServerConnection c, final int gen) {
+        int seat = c.getSeat();
+        if (c.getTable() != this || seated[seat] != c
+                || deadlineGen[seat] != gen || round == 0
+                || drawCounts[seat] >= 0) {
+            return;
+        }
+        deadlines[seat] = null;
+        drawCounts[seat] = 0;
+        broadcaster.broadcast(OutboundMessage.event("TIMEOUT", seat));
+        finishRoundIfReady();
+    }
+
+    /**
+     * Deal the round's replacements if no seated client is left to act.
+     */
+    private void finishRoundIfReady() {
+        for (int s = 0; s < seats; s++) {
+            if (drawCounts[s] < 0 && seated[s] != null) {
+                return;
+            }
+        }
+        for (int s = 0; s < seats; s++) {
+            drawCounts[s] = Math.max(drawCounts[s], 0);
+        }
+        dealRound();
+    }
+
+    /**
+     * Deal drawCounts to every seat in one atomic deck operation, then send
+     * each client its cards and the table one event with every count.
+     */
+    private void dealRound() {
+        if (!deck.dealRound(drawCounts, dealt, HAND_SIZE)) {
+            System.err.println("Table " + id + " ran out of cards");
+            return;
+        }
+        Object[] counts = new Object[seats + 1];
+        counts[0] = round;
+        ArrayList<String> names = new ArrayList<>(HAND_SIZE);
+        for (int s = 0; s < seats; s++) {
+            long mask = 0;
+            names.clear();
+            for (int k = 0; k < drawCounts[s]; k++) {
+                mask |= 1L << dealt[s * HAND_SIZE + k];
+                names.add(Deck.name(dealt[s * HAND_SIZE + k]));
+            }
+            hands.give(s, mask);
+            if (seated[s] != null && drawCounts[s] > 0) {
+                seated[s].send(OutboundMessage.lines(names));
+            }
+            if (round == 0) {
+                if (seated[s] != null) {
+                    tableState.seat(s, Long.bitCount(hands.hand(s)));
+                }
+            } else {
+                tableState.draw(s, drawCounts[s]);
+            }
+            counts[s + 1] = drawCounts[s];
+        }
+        tableState.deckRemaining(deck.remaining());
+        broadcaster.broadcast(OutboundMessage.event("ROUND", counts));
+        recordRound();
+        Arrays.fill(drawCounts, -1);
+        round++;
+        for (int s = 0; s < seats; s++) {
+            armDeadline(s);
+        }
+    }
+
+    /**
+     * Feed the round just dealt into game statistics.
+     */
+    private void recordRound() {
+        GameStats stats = PokerServer.stats();
+        if (round == 0) {
+            stats.handDealt(id);
+        } else {
+            stats.roundDealt(id);
+        }
+        for (int s = 0; s < seats; s++) {
+            if (seated[s] == null) {
+                continue;
+            }
+            if (round == 0) {
+                stats.handStarted(id, seated[s].getPlayerId());
+            } else {
+                stats.drew(id, seated[s].getPlayerId(), drawCounts[s]);
+            }
+        }
+    }
+
+    /**
+     * Show a disconnected client as away, then free its seat once the grace
+     * period has passed.
+     *
+     * @param c
+     *          client that disconnected
+     */
+    public void disconnected(final ServerConnection c) {
+        Table t = c.getTable();
+        if (t != this) {
+            t.execute(() -> t.disconnected(c));
+            return;
+        }
+        seated[c.getSeat()] = null;
+        cancelDeadline(c.getSeat());
+        broadcaster.unseat(c);
+        broadcaster.broadcast(OutboundMessage.event("AWAY", c.getSeat()));
+        PokerServer.timer().schedule(() -> execute(() -> unseat(c)),
+                DISCONNECT_GRACE_MS);
+        if (round > 0) {
+            finishRoundIfReady();
+        }
+    }
+
+    /**
+     * Free a client's seat, reaping the table later if it is left empty
+     * and has no seats left to hand out. In a tournament the client is
+     * out.
+     *
+     * @param c
+     *          client leaving the table
+     */
+    public void unseat(final ServerConnection c) {
+        Table t = c.getTable();
+        if (t != this) {
+            t.execute(() -> t.unseat(c));
+            return;
+        }
+        if (seated[c.getSeat()] == c) {
+            seated[c.getSeat()] = null;
+            cancelDeadline(c.getSeat());
+            broadcaster.unseat(c);
+            if (round > 0) {
+                finishRoundIfReady();
+            }
+        }
+        deck.discard(hands.clear(c.getSeat()));
+        tableState.unseat(c.getSeat());
+        tableState.deckRemaining(deck.remaining());
+        broadcaster.broadcast(OutboundMessage.event("LEAVE", c.getSeat()));
+        if (broadcaster.size() == 0 && seatsTaken.get() >= seats
+                && idleReap == null) {
+            idleReap = PokerServer.timer().schedule(
+                    () -> execute(this::reap), IDLE_TABLE_MS);
+        }
+        if (tournament != null) {
+            tournament.eliminated(c);
+        }
+        if (retiring) {
+            reap();
+        }
+    }
+
+    /**
+     * Close the table once a tournament has moved everyone off it; players
+     * still on their way off keep it open until they have gone.
+     */
+    public void retire() {
+        retiring = true;
+        if (idleReap != null) {
+            idleReap.cancel();
+        }
+        reap();
+    }
+
+    /**
+     * Close a table that has sat empty.
+     */
+    private void reap() {
+        idleReap = null;
+        if (reaped || broadcaster.size() > 0) {
+            return;
+        }
+        reaped = true;
+        spectatorFeed.closeAll();
+        shards.remove(this);
+        System.out.println("Reaped idle table " + id);
+    }
+
+    /**
+     * Add a spectator to this table.
+     * Safe to call from any thread.
+     *
+     * @param sc
+     *           joining spectator
+     */
+    public void watch(final SpectatorConnection sc) {
+        spectatorFeed.addSpectator(sc);
+    }
+
+    /**
+     * Report table id.
+     *
+     * @return id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Report shard currently running this table.
+     *
+     * @return shard index
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Move table to another shard; takes effect from its next batch.
+     *
+     * @param s
+     *          shard index
+     */
+    void setShard(final int s) {
+        shard = s;
+    }
+
+    /**
+     * Make this a tournament table; call before seating anyone.
+     *
+     * @param t
+     *          tournament the table belongs to
+     */
+    void setTournament(final Tournament t) {
+        tournament = t;
+    }
+
+    /**
+     * Report whether table has been reaped.
+     *
+     * @return true if reaped
+     */
+    public boolean isReaped() {
+        return reaped;
+    }
+
+    /**
+     * Add task to mailbox.
+     *
+     * @param task
+     *             task to add
+     * @return true if the caller must queue this table on its shard
+     */
+    boolean enqueue(final Runnable task) {
+        mailbox.add(task);
+        return scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Run waiting tasks; called by a shard worker only.
+     *
+     * @param max
+     *            most tasks to run before yielding
+     * @return true if tasks remain and the table must be queued again
+     */
+    boolean runTasks(final int max) {
+        long start = System.nanoTime();
+        Runnable task;
+        for (int j = 0; j < max && (task = mailbox.poll()) != null; j++) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                System.err.println("Task failed on table " + id + ": " + e);
+            }
+        }
+        busyNanos += System.nanoTime() - start;
+        if (!mailbox.isEmpty()) {
+            return true;
+        }
+        scheduled.set(false);
+        //a task added after the check above saw scheduled still set
+        return !mailbox.isEmpty() && scheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * Report busy time since the last call; called by rebalancer only.
+     *
+     * @return nanoseconds spent running tasks in the window
+     */
+    long windowBusyNanos() {
+        long total = busyNanos;
+        long window = total - lastBusyNanos;
+        lastBusyNanos = total;
+        return window;
+    }
+}
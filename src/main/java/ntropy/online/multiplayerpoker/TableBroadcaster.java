@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fans table events out to every seated connection.
+ * Each event is encoded once by the caller and the same message is passed
+ * to every seat; nothing is copied or re-encoded per recipient.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class TableBroadcaster {
+
+    /**
+     * Seated connections. Seating is rare and broadcasting is frequent, so
+     * iteration should not need a lock.
+     */
+    private final CopyOnWriteArrayList<ServerConnection> seats
+            = new CopyOnWriteArrayList<>();
+
+    /**
+     * Add connection to broadcast list.
+     *
+     * @param c
+     *          connection taking a seat
+     */
+    public void seat(final ServerConnection c) {
+        seats.addIfAbsent(c);
+    }
+
+    /**
+     * Remove connection from broadcast list.
+     *
+     * @param c
+     *          connection leaving its seat
+     */
+    public void unseat(final ServerConnection c) {
+        seats.remove(c);
+    }
+
+    /**
+     * Send one message to all seated connections.
+     *
+     * @param msg
+     *            pre-encoded message shared by all recipients
+     */
+    public void broadcast(final OutboundMessage msg) {
+        for (ServerConnection c : seats) {
+            c.send(msg);
+        }
+    }
+
+    /**
+     * Report number of seated connections.
+     *
+     * @return seat count
+     */
+    public int size() {
+        return seats.size();
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Fixed set of worker threads that own all table state.
+ * Tables start on the shard picked by their id and every task for a table
+ * runs on that table's current shard, one at a time, so table state needs
+ * no locks and stays in one core's cache. Hot shards are relieved by moving
+ * a table to the coldest shard; a table only changes shard between batches
+ * of its tasks, so it is never run by two workers at once.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class TableShards {
+
+    /**
+     * Most tasks a table may run before yielding its worker.
+     */
+    private static final int BATCH = 64;
+
+    /**
+     * Hot shard must be this much busier than the coldest, as a fraction
+     * of the rebalance window, before a table is moved.
+     */
+    private static final double MIN_IMBALANCE = 0.10;
+
+    /**
+     * Worker per shard.
+     */
+    private final Worker[] workers;
+
+    /**
+     * All live tables by id.
+     */
+    private final ConcurrentHashMap<Integer, Table> tables
+            = new ConcurrentHashMap<>();
+
+    /**
+     * Busy time per shard at the last rebalance; rebalancer only.
+     */
+    private final long[] lastBusy;
+
+    /**
+     * Utilisation per shard over the last rebalance window.
+     */
+    private volatile double[] load;
+
+    /**
+     * Time of the last rebalance; rebalancer only.
+     */
+    private long lastRebalance = System.nanoTime();
+
+    /**
+     * Create and start shard workers.
+     *
+     * @param shardNum
+     *                 number of shards, usually one per core
+     */
+    public TableShards(final int shardNum) {
+        workers = new Worker[shardNum];
+        lastBusy = new long[shardNum];
+        load = new double[shardNum];
+        for (int j = 0; j < shardNum; j++) {
+            workers[j] = new Worker(j);
+            workers[j].start();
+        }
+    }
+
+    /**
+     * Register a new table on the shard picked by its id.
+     *
+     * @param t
+     *          table to host
+     */
+    public void add(final Table t) {
+        t.setShard(t.getId() % workers.length);
+        tables.put(t.getId(), t);
+    }
+
+    /**
+     * Stop hosting a table.
+     *
+     * @param t
+     *          table to remove
+     */
+    public void remove(final Table t) {
+        tables.remove(t.getId());
+    }
+
+    /**
+     * Find a live table.
+     *
+     * @param id
+     *           table id
+     * @return table, or null if there is none
+     */
+    public Table get(final int id) {
+        return tables.get(id);
+    }
+
+    /**
+     * Report live tables.
+     *
+     * @return view of live tables
+     */
+    public Collection<Table> tables() {
+        return tables.values();
+    }
+
+    /**
+     * Queue a task to run on the shard that owns a table.
+     *
+     * @param t
+     *          table the task belongs to
+     * @param task
+     *             task to run
+     */
+    public void dispatch(final Table t, final Runnable task) {
+        if (t.enqueue(task)) {
+            workers[t.getShard()].runQueue.add(t);
+        }
+    }
+
+    /**
+     * Report utilisation of each shard over the last rebalance window.
+     *
+     * @return busy fraction per shard, 0 to 1
+     */
+    public double[] load() {
+        return load.clone();
+    }
+
+    /**
+     * Report number of tables on each shard.
+     *
+     * @return table count per shard
+     */
+    public int[] tableCounts() {
+        int[] counts = new int[workers.length];
+        for (Table t : tables.values()) {
+            counts[t.getShard()]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Measure shard load since the last call and, if one shard is running
+     * hot, move the table that best closes the gap to the coldest shard.
+     * At most one table moves per call so load can settle in between.
+     */
+    public void rebalance() {
+        long now = System.nanoTime();
+        long window = Math.max(1, now - lastRebalance);
+        lastRebalance = now;
+        long[] busy = new long[workers.length];
+        double[] newLoad = new double[workers.length];
+        int hot = 0, cold = 0;
+        for (int j = 0; j < workers.length; j++) {
+            long total = workers[j].busyNanos;
+            busy[j] = total - lastBusy[j];
+            lastBusy[j] = total;
+            newLoad[j] = (double) busy[j] / window;
+            if (busy[j] > busy[hot]) {
+                hot = j;
+            }
+            if (busy[j] < busy[cold]) {
+                cold = j;
+            }
+        }
+        load = newLoad;
+        Table best = null;
+        long bestLoad = 0;
+        long gap = (busy[hot] - busy[cold]) / 2;
+        boolean imbalanced = hot != cold
+                && busy[hot] - busy[cold] > MIN_IMBALANCE * window;
+        for (Table t : tables.values()) {
+            long tableBusy = t.windowBusyNanos();
+            if (imbalanced && t.getShard() == hot && tableBusy <= gap
+                    && tableBusy > bestLoad) {
+                best = t;
+                bestLoad = tableBusy;
+            }
+        }
+        if (best != null) {
+            best.setShard(cold);
+            System.out.println("Moved table " + best.getId() + " from shard "
+                    + hot + " to " + cold);
+        }
+    }
+
+    /**
+     * Thread that runs tasks for the tables on one shard.
+     */
+    private final class Worker extends Thread {
+
+        /**
+         * Tables with tasks waiting.
+         */
+        private final LinkedBlockingQueue<Table> runQueue
+                = new LinkedBlockingQueue<>();
+
+        /**
+         * Total time spent running tasks; written by this worker only.
+         */
+        private volatile long busyNanos;
+
+        /**
+         * Create worker for a shard.
+         *
+         * @param shard
+         *              shard index
+         */
+        private Worker(final int shard) {
+            super("table-shard-" + shard);
+            setDaemon(true);
+        }
+
+        /**
+         * Thread instructions.
+         */
+        @Override
+        public void run() {
+            Table t;
+            long start;
+            while (true) {
+                try {
+                    t = runQueue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                start = System.nanoTime();
+                boolean more = t.runTasks(BATCH);
+                busyNanos += System.nanoTime() - start;
+                if (more) {
+                    //table may have moved shard while its tasks ran
+                    workers[t.getShard()].runQueue.add(t);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+/**
+ * Public view of a table, safe to show to anyone watching.
+ * Only counts are kept here; card names never are, so hidden cards cannot
+ * leak to spectators.
+ * State is a flat array of ints: slot 0 is cards left in the deck, followed
+ * by {@link #SEAT_FIELDS} slots per seat (seated, hand size, last draw,
+ * total drawn).
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class TableState {
+
+    /**
+     * Number of slots per seat.
+     */
+    public static final int SEAT_FIELDS = 4;
+
+    /**
+     * Slot holding cards left in the deck.
+     */
+    private static final int DECK_SLOT = 0;
+
+    /**
+     * Field offsets within a seat.
+     */
+    private static final int SEATED = 0, HAND_SIZE = 1, LAST_DRAW = 2,
+            TOTAL_DRAWN = 3;
+
+    /**
+     * Current state values.
+     */
+    private final int[] values;
+
+    /**
+     * Incremented on every change.
+     */
+    private long version;
+
+    /**
+     * Create state for a table.
+     *
+     * @param seats
+     *              number of seats at the table
+     */
+    public TableState(final int seats) {
+        values = new int[1 + seats * SEAT_FIELDS];
+    }
+
+    /**
+     * Record a player taking a seat.
+     *
+     * @param seat
+     *             seat index
+     * @param handSize
+     *                 cards held by player
+     */
+    public synchronized void seat(final int seat, final int handSize) {
+        set(slot(seat, SEATED), 1);
+        set(slot(seat, HAND_SIZE), handSize);
+    }
+
+    /**
+     * Record a player leaving a seat.
+     *
+     * @param seat
+     *             seat index
+     */
+    public synchronized void unseat(final int seat) {
+        set(slot(seat, SEATED), 0);
+        set(slot(seat, HAND_SIZE), 0);
+    }
+
+    /**
+     * Record cards drawn by a player.
+     *
+     * @param seat
+     *             seat index
+     * @param num
+     *            number of cards drawn
+     */
+    public synchronized void draw(final int seat, final int num) {
+        set(slot(seat, LAST_DRAW), num);
+        set(slot(seat, TOTAL_DRAWN), values[slot(seat, TOTAL_DRAWN)] + num);
+    }
+
+    /**
+     * Record cards remaining in deck.
+     *
+     * @param num
+     *            cards left
+     */
+    public synchronized void deckRemaining(final int num) {
+        set(DECK_SLOT, num);
+    }
+
+    /**
+     * Copy state into buffer if it changed since a given version.
+     *
+     * @param dest
+     *             buffer at least {@link #size()} long
+     * @param since
+     *              version the caller already holds
+     * @return current version
+     */
+    public synchronized long copyIfChanged(final int[] dest,
+            final long since) {
+        if (version != since) {
+            System.arraycopy(values, 0, dest, 0, values.length);
+        }
+        return version;
+    }
+
+    /**
+     * Report number of state slots.
+     *
+     * @return slot count
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Find slot of a seat field.
+     *
+     * @param seat
+     *             seat index
+     * @param field
+     *              field offset
+     * @return slot index
+     */
+    private static int slot(final int seat, final int field) {
+        return 1 + seat * SEAT_FIELDS + field;
+    }
+
+    /**
+     * Change a slot, bumping version only on an actual change.
+     *
+     * @param slot
+     *             slot index
+     * @param value
+     *              new value
+     */
+    private void set(final int slot, final int value) {
+        if (values[slot] != value) {
+            values[slot] = value;
+            version++;
+        }
+    }
+}
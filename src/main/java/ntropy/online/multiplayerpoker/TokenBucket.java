@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+/**
+ * Token bucket rate limiter for a single connection.
+ * Not thread-safe; each connection thread owns its own bucket.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class TokenBucket {
+
+    /**
+     * Most tokens the bucket holds, i.e. the allowed burst.
+     */
+    private final double capacity;
+
+    /**
+     * Tokens added per nanosecond.
+     */
+    private final double refillPerNano;
+
+    /**
+     * Tokens currently available.
+     */
+    private double tokens;
+
+    /**
+     * Time tokens were last topped up.
+     */
+    private long lastRefill = System.nanoTime();
+
+    /**
+     * Create a full bucket.
+     *
+     * @param burst
+     *              most tokens the bucket holds
+     * @param perSecond
+     *                  tokens added per second
+     */
+    public TokenBucket(final int burst, final double perSecond) {
+        capacity = burst;
+        refillPerNano = perSecond / 1e9;
+        tokens = burst;
+    }
+
+    /**
+     * Take a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise nanoseconds until one will
+     *         be
+     */
+    public long tryAcquire() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefill)
+                * refillPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens--;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerNano);
+    }
+}
@@ -0,0 +1,532 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.Arrays;
+
+/**
+ * Multi-table tournament: seats entrants across tables, raises the blinds
+ * on a timer and keeps tables balanced as players are knocked out.
+ * Tables are kept in buckets by player count (intrusive lists over table
+ * indexes), so the fullest and emptiest tables are always at hand and each
+ * elimination is rebalanced in constant time: at most one player moves, or,
+ * once everyone fits at one table fewer, the smallest table is broken up.
+ * Moves run as tasks on the two tables involved only; every other table
+ * keeps playing.
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class Tournament {
+
+    /**
+     * Big blind per level; the small blind is half.
+     */
+    private static final int[] BIG_BLINDS = {20, 30, 50, 100, 150, 200, 300,
+        400, 600, 800, 1000, 1500, 2000, 3000, 4000, 6000, 8000, 10000};
+
+    /**
+     * End of a bucket list.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Seats per table.
+     */
+    private final int seats;
+
+    /**
+     * Players expected before the tournament starts.
+     */
+    private final int entrants;
+
+    /**
+     * Length of each blind level, in milliseconds.
+     */
+    private final long levelMs;
+
+    /**
+     * Tables by index; table ids are consecutive from the first.
+     */
+    private final Table[] tables;
+
+    /**
+     * Id of the first table.
+     */
+    private final int firstId;
+
+    /**
+     * Players per table, or -1 once a table is broken.
+     */
+    private final int[] counts;
+
+    /**
+     * Free seats per table, as a bit mask.
+     */
+    private final int[] free;
+
+    /**
+     * Players by table index * seats + seat.
+     */
+    private final ServerConnection[] roster;
+
+    /**
+     * Bucket list links by table index.
+     */
+    private final int[] next, prev;
+
+    /**
+     * First table in each bucket, by player count.
+     */
+    private final int[] head;
+
+    /**
+     * Roster slot by player id; {@link IntIntMap#MISSING} once out.
+     */
+    private final IntIntMap slots = new IntIntMap();
+
+    /**
+     * Guards all tournament state.
+     */
+    private final Object lock = new Object();
+
+    /**
+     * Smallest and largest player count of a live table.
+     */
+    private int min, max;
+
+    /**
+     * Tables not yet broken.
+     */
+    private int live;
+
+    /**
+     * Players still in.
+     */
+    private int players;
+
+    /**
+     * Players moved between tables so far.
+     */
+    private long moves;
+
+    /**
+     * Current blind level.
+     */
+    private int level;
+
+    /**
+     * Set once play has started.
+     */
+    private boolean started;
+
+    /**
+     * Pending blind increase.
+     */
+    private HashedWheelTimer.Timeout nextLevel;
+
+    /**
+     * Create a tournament and open just enough tables for every entrant.
+     *
+     * @param n
+     *          number of entrants
+     * @param seatNum
+     *                seats per table
+     * @param first
+     *              id of the first table; the rest follow in order
+     * @param level
+     *              length of each blind level, in milliseconds
+     * @param shards
+     *               shards to host tables on
+     */
+    public Tournament(final int n, final int seatNum, final int first,
+            final long level, final TableShards shards) {
+        entrants = n;
+        seats = seatNum;
+        firstId = first;
+        levelMs = level;
+        int tableNum = (n + seats - 1) / seats;
+        tables = new Table[tableNum];
+        counts = new int[tableNum];
+        free = new int[tableNum];
+        roster = new ServerConnection[tableNum * seats];
+        next = new int[tableNum];
+        prev = new int[tableNum];
+        head = new int[seats + 1];
+        Arrays.fill(head, NONE);
+        for (int t = 0; t < tableNum; t++) {
+            tables[t] = new Table(first + t, seats, shards);
+            tables[t].setTournament(this);
+            free[t] = (1 << seats) - 1;
+            link(t);
+        }
+        live = tableNum;
+    }
+
+    /**
+     * Register an entrant at the emptiest table, which keeps tables
+     * balanced while they fill.
+     *
+     * @param name
+     *             name of client
+     * @param playerId
+     *                 player id of client
+     * @return client, to be connected and seated at its table, or null if
+     *         the tournament is full
+     */
+    public ServerConnection register(final String name, final int playerId) {
+        synchronized (lock) {
+            if (started || players == entrants) {
+                return null;
+            }
+            int t = head[min];
+            int s = Integer.numberOfTrailingZeros(free[t]);
+            ServerConnection c = new ServerConnection(name, playerId,
+                    tables[t], s);
+            add(c, t, s);
+            return c;
+        }
+    }
+
+    /**
+     * Start play at every table and the blind clock. Tables short of
+     * entrants who failed to connect are balanced first.
+     */
+    public void start() {
+        synchronized (lock) {
+            if (started) {
+                return;
+            }
+            started = true;
+            while (balance()) {
+                continue;
+            }
+            for (Table t : tables) {
+                if (!t.isReaped()) {
+                    t.execute(t::start);
+                }
+            }
+            announceLevel();
+        }
+    }
+
+    /**
+     * Take a player out of the tournament and rebalance. Called by the
+     * player's table once it has freed the seat; unknown or already
+     * eliminated players are ignored.
+     *
+     * @param c
+     *          player knocked out
+     */
+    public void eliminated(final ServerConnection c) {
+        synchronized (lock) {
+            int slot = slots.get(c.getPlayerId());
+            if (slot == IntIntMap.MISSING) {
+                return;
+            }
+            remove(slot);
+            slots.put(c.getPlayerId(), IntIntMap.MISSING);
+            if (!started) {
+                return;
+            }
+            if (players == 1) {
+                finish();
+                return;
+            }
+            balance();
+        }
+    }
+
+    /**
+     * Report players still in.
+     *
+     * @return player count
+     */
+    public int players() {
+        synchronized (lock) {
+            return players;
+        }
+    }
+
+    /**
+     * Report players per live table, for monitoring.
+     *
+     * @return player count per table not yet broken
+     */
+    public int[] tableCounts() {
+        synchronized (lock) {
+            int[] out = new int[live];
+            int j = 0;
+            for (int count : counts) {
+                if (count >= 0) {
+                    out[j++] = count;
+                }
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Report players moved between tables so far.
+     *
+     * @return move count
+     */
+    public long moves() {
+        synchronized (lock) {
+            return moves;
+        }
+    }
+
+    /**
+     * Report current blind level.
+     *
+     * @return level, from 0
+     */
+    public int level() {
+        synchronized (lock) {
+            return level;
+        }
+    }
+
+    /**
+     * Report current big blind.
+     *
+     * @return big blind
+     */
+    public int bigBlind() {
+        synchronized (lock) {
+            return BIG_BLINDS[level];
+        }
+    }
+
+    /**
+     * Restore balance with at most one table break or one move; lock must
+     * be held.
+     *
+     * @return true if anything changed
+     */
+    private boolean balance() {
+        if (live > 1 && players <= (live - 1) * seats) {
+            breakTable(head[min]);
+            return true;
+        }
+        if (max - min > 1) {
+            int from = head[max];
+            int occupied = ~free[from] & (1 << seats) - 1;
+            move(from * seats + 31 - Integer.numberOfLeadingZeros(occupied),
+                    head[min]);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Move every player off a table to the emptiest others, then close
+     * it; lock must be held.
+     *
+     * @param t
+     *          index of table to break
+     */
+    private void breakTable(final int t) {
+        unlink(t);
+        counts[t] = -1;
+        live--;
+        bounds();
+        for (int s = 0; s < seats; s++) {
+            if (roster[t * seats + s] != null) {
+                move(t * seats + s, head[min]);
+            }
+        }
+        Table table = tables[t];
+        int left = live;
+        //log from the table's shard, not under the lock
+        table.execute(() -> {
+            table.retire();
+            System.out.println("Broke tournament table " + table.getId()
+                    + "; " + left + " tables left");
+        });
+    }
+
+    /**
+     * Move a player to the lowest free seat at another table; lock must be
+     * held. The player's old table hands it over on its own shard.
+     *
+     * @param slot
+     *             roster slot of player
+     * @param to
+     *           index of table to move to
+     */
+    private void move(final int slot, final int to) {
+        ServerConnection c = roster[slot];
+        int s = Integer.numberOfTrailingZeros(free[to]);
+        remove(slot);
+        add(c, to, s);
+        moves++;
+        Table src = tables[slot / seats], dst = tables[to];
+        src.execute(() -> src.transferOut(c, dst, s));
+    }
+
+    /**
+     * Put a player in a seat; lock must be held.
+     *
+     * @param c
+     *          player
+     * @param t
+     *          table index
+     * @param s
+     *          seat index
+     */
+    private void add(final ServerConnection c, final int t, final int s) {
+        roster[t * seats + s] = c;
+        slots.put(c.getPlayerId(), t * seats + s);
+        free[t] &= ~(1 << s);
+        players++;
+        recount(t, 1);
+    }
+
+    /**
+     * Take a player out of a seat; lock must be held.
+     *
+     * @param slot
+     *             roster slot
+     */
+    private void remove(final int slot) {
+        int t = slot / seats;
+        roster[slot] = null;
+        free[t] |= 1 << slot % seats;
+        players--;
+        if (counts[t] >= 0) {
+            recount(t, -1);
+        }
+    }
+
+    /**
+     * Change a live table's player count and move it between buckets.
+     *
+     * @param t
+     *          table index
+     * @param delta
+     *              change in players, 1 or -1
+     */
+    private void recount(final int t, final int delta) {
+        unlink(t);
+        counts[t] += delta;
+        link(t);
+        bounds();
+    }
+
+    /**
+     * Push a table onto the bucket for its player count.
+     *
+     * @param t
+     *          table index
+     */
+    private void link(final int t) {
+        int c = counts[t];
+        prev[t] = NONE;
+        next[t] = head[c];
+        if (head[c] != NONE) {
+            prev[head[c]] = t;
+        }
+        head[c] = t;
+        min = Math.min(min, c);
+        max = Math.max(max, c);
+    }
+
+    /**
+     * Take a table out of its bucket.
+     *
+     * @param t
+     *          table index
+     */
+    private void unlink(final int t) {
+        if (prev[t] != NONE) {
+            next[prev[t]] = next[t];
+        } else {
+            head[counts[t]] = next[t];
+        }
+        if (next[t] != NONE) {
+            prev[next[t]] = prev[t];
+        }
+    }
+
+    /**
+     * Walk min and max in to the nearest non-empty buckets; link() already
+     * widens them. Counts change by one at a time, so this is a step or
+     * two at most, and never more than the seats per table.
+     */
+    private void bounds() {
+        while (max > 0 && head[max] == NONE) {
+            max--;
+        }
+        while (min < max && head[min] == NONE) {
+            min++;
+        }
+    }
+
+    /**
+     * Tell every table the current blinds, and schedule the next level.
+     */
+    private void announceLevel() {
+        OutboundMessage msg = OutboundMessage.event("BLINDS", level,
+                BIG_BLINDS[level] / 2, BIG_BLINDS[level]);
+        for (Table t : tables) {
+            if (!t.isReaped()) {
+                t.execute(() -> t.announce(msg));
+            }
+        }
+        if (level + 1 < BIG_BLINDS.length) {
+            nextLevel = PokerServer.timer().schedule(this::raiseBlinds,
+                    levelMs);
+        }
+    }
+
+    /**
+     * Move to the next blind level.
+     */
+    private void raiseBlinds() {
+        synchronized (lock) {
+            if (players <= 1) {
+                return;
+            }
+            level++;
+            announceLevel();
+        }
+    }
+
+    /**
+     * Declare the last player standing the winner and stop the clock;
+     * lock must be held.
+     */
+    private void finish() {
+        if (nextLevel != null) {
+            nextLevel.cancel();
+        }
+        int t = head[max];
+        int s = Integer.numberOfTrailingZeros(~free[t]);
+        ServerConnection winner = roster[t * seats + s];
+        Table table = tables[t];
+        table.execute(() -> {
+            table.announce(OutboundMessage.event("WINNER",
+                    winner.getPlayerId()));
+            System.out.println("Tournament won by player "
+                    + winner.getPlayerId() + " at table " + table.getId());
+        });
+    }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.util.Arrays;
+
+/**
+ * Statistical audit of {@link Deck} shuffling and dealing, for gating
+ * releases. Each core runs its own deck through full-table rounds exactly
+ * as a table does (deal, muck everything, shuffle the muck back in) and
+ * tallies results in primitive counters, which are merged at the end and
+ * checked with chi-square tests:
+ * <ul>
+ * <li>card by deal position, one test per position;</li>
+ * <li>first two cards dealt, as ordered pairs, for correlation between
+ * neighbouring cards;</li>
+ * <li>hand category of one seat per round, against exact poker odds.</li>
+ * </ul>
+ * Tests share an overall false-failure rate of {@link #ALPHA}. Exits with
+ * status 1 if any test fails.
+ * Usage: ShuffleAudit [rounds] [threads]
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class ShuffleAudit {
+
+    /**
+     * Rounds dealt if not given.
+     */
+    private static final long DEFAULT_ROUNDS = 20_000_000L;
+
+    /**
+     * Chance of failing a fair deck across all tests together.
+     */
+    private static final double ALPHA = 1e-3;
+
+    /**
+     * Seats at a full table; every round deals a hand to each.
+     */
+    private static final int SEATS = Deck.SIZE / Table.HAND_SIZE;
+
+    /**
+     * Cards dealt per round.
+     */
+    private static final int DEALT = SEATS * Table.HAND_SIZE;
+
+    /**
+     * Hand categories, in ascending strength.
+     */
+    private static final String[] CATEGORIES = {"High card", "Pair",
+        "Two pair", "Three of a kind", "Straight", "Flush", "Full house",
+        "Four of a kind", "Straight flush"};
+
+    /**
+     * Five-card hands in each category, out of {@link #HANDS}.
+     */
+    private static final long[] COMBOS = {1_302_540, 1_098_240, 123_552,
+        54_912, 10_200, 5_108, 3_744, 624, 40};
+
+    /**
+     * Number of distinct five-card hands.
+     */
+    private static final long HANDS = 2_598_960;
+
+    /**
+     * Cards of each type, one per suit, as a mask; shift by type.
+     */
+    private static final long TYPE_COLUMN = 1L | 1L << 13 | 1L << 26
+            | 1L << 39;
+
+    /**
+     * Types of an ace-high straight: ace, ten, jack, queen, king.
+     */
+    private static final int ACE_HIGH = 1 | 0xF << 9;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private ShuffleAudit() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *             optional rounds to deal and threads to use
+     * @throws InterruptedException
+     *             if interrupted while waiting for workers
+     */
+    public static void main(final String[] args)
+            throws InterruptedException {
+        long rounds = args.length > 0 ? Long.parseLong(args[0])
+                : DEFAULT_ROUNDS;
+        int threads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        System.out.println("Dealing " + rounds + " rounds of " + SEATS
+                + " hands on " + threads + " threads...");
+        long start = System.nanoTime();
+        Worker[] workers = new Worker[threads];
+        for (int j = 0; j < threads; j++) {
+            workers[j] = new Worker(j, rounds / threads
+                    + (j < rounds % threads ? 1 : 0));
+            workers[j].start();
+        }
+        long[] positions = new long[DEALT * Deck.SIZE];
+        long[] pairs = new long[Deck.SIZE * Deck.SIZE];
+        long[] categories = new long[CATEGORIES.length];
+        for (Worker w : workers) {
+            w.join();
+            add(positions, w.positions);
+            add(pairs, w.pairs);
+            add(categories, w.categories);
+        }
+        System.out.printf("Dealt in %.1f s%n",
+                (System.nanoTime() - start) / 1e9);
+
+        int tests = DEALT + 2;
+        double alpha = ALPHA / tests; //Bonferroni
+        boolean pass = true;
+
+        double worst = 1;
+        int worstAt = 0;
+        for (int p = 0; p < DEALT; p++) {
+            double chi = 0;
+            for (int c = 0; c < Deck.SIZE; c++) {
+                chi += term(positions[p * Deck.SIZE + c],
+                        (double) rounds / Deck.SIZE);
+            }
+            double pv = pValue(chi, Deck.SIZE - 1);
+            if (pv < worst) {
+                worst = pv;
+                worstAt = p;
+            }
+        }
+        pass &= report("Card by position (worst, seat " + (worstAt
+                / Table.HAND_SIZE + 1) + " card " + (worstAt
+                % Table.HAND_SIZE + 1) + ")", worst, alpha);
+
+        double chi = 0;
+        boolean repeat = false;
+        double pairExpected = (double) rounds
+                / (Deck.SIZE * (Deck.SIZE - 1));
+        for (int a = 0; a < Deck.SIZE; a++) {
+            for (int b = 0; b < Deck.SIZE; b++) {
+                if (a == b) {
+                    repeat |= pairs[a * Deck.SIZE + b] != 0;
+                } else {
+                    chi += term(pairs[a * Deck.SIZE + b], pairExpected);
+                }
+            }
+        }
+        if (repeat) {
+            System.out.println("FAIL  the same card was dealt twice");
+            pass = false;
+        }
+        pass &= report("First two cards", pValue(chi,
+                Deck.SIZE * (Deck.SIZE - 1) - 1), alpha);
+
+        chi = 0;
+        for (int k = 0; k < CATEGORIES.length; k++) {
+            double expected = (double) rounds * COMBOS[k] / HANDS;
+            chi += term(categories[k], expected);
+            System.out.printf("      %-16s %12d  expected %14.1f%n",
+                    CATEGORIES[k], categories[k], expected);
+        }
+        pass &= report("Hand categories", pValue(chi,
+                CATEGORIES.length - 1), alpha);
+
+        System.out.println(pass ? "PASS" : "FAIL");
+        if (!pass) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Print one test result.
+     *
+     * @param name
+     *             test name
+     * @param p
+     *          p-value
+     * @param alpha
+     *              p-value below which the test fails
+     * @return true if the test passed
+     */
+    private static boolean report(final String name, final double p,
+            final double alpha) {
+        boolean pass = p >= alpha;
+        System.out.printf("%s  %s: p = %.3g%n", pass ? "ok  " : "FAIL", name,
+                p);
+        return pass;
+    }
+
+    /**
+     * Add counters into a total.
+     *
+     * @param total
+     *              running total
+     * @param part
+     *             counters to add
+     */
+    private static void add(final long[] total, final long[] part) {
+        for (int j = 0; j < total.length; j++) {
+            total[j] += part[j];
+        }
+    }
+
+    /**
+     * One cell's contribution to a chi-square statistic.
+     *
+     * @param observed
+     *                 observed count
+     * @param expected
+     *                 expected count
+     * @return (observed - expected)^2 / expected
+     */
+    private static double term(final long observed, final double expected) {
+        double d = observed - expected;
+        return d * d / expected;
+    }
+
+    /**
+     * Upper-tail p-value of a chi-square statistic, via the Wilson-Hilferty
+     * normal approximation; good for the degrees of freedom used here.
+     *
+     * @param chi
+     *            chi-square statistic
+     * @param df
+     *           degrees of freedom
+     * @return chance of a statistic at least this large from a fair deck
+     */
+    private static double pValue(final double chi, final int df) {
+        double v = 2.0 / (9 * df);
+        double z = (Math.cbrt(chi / df) - (1 - v)) / Math.sqrt(v);
+        return normalUpperTail(z);
+    }
+
+    /**
+     * Upper tail of the standard normal distribution (Abramowitz and
+     * Stegun 26.2.17, absolute error under 7.5e-8).
+     *
+     * @param z
+     *          standard score
+     * @return P(Z &gt; z)
+     */
+    private static double normalUpperTail(final double z) {
+        if (z < 0) {
+            return 1 - normalUpperTail(-z);
+        }
+        double t = 1 / (1 + 0.2316419 * z);
+        double poly = t * (0.319381530 + t * (-0.356563782 + t * (1.781477937
+                + t * (-1.821255978 + t * 1.330274429))));
+        return Math.exp(-z * z / 2) / Math.sqrt(2 * Math.PI) * poly;
+    }
+
+    /**
+     * Classify a five-card hand.
+     *
+     * @param cards
+     *              card ids
+     * @param off
+     *            index of the hand's first card
+     * @return index into {@link #CATEGORIES}
+     */
+    private static int category(final int[] cards, final int off) {
+        long hand = 0;
+        int types = 0;
+        for (int k = off; k < off + Table.HAND_SIZE; k++) {
+            hand |= 1L << cards[k];
+            types |= 1 << cards[k] % 13;
+        }
+        int distinct = Integer.bitCount(types);
+        if (distinct == Table.HAND_SIZE) {
+            long suit = 0x1FFFL << cards[off] / 13 * 13;
+            boolean flush = (hand & ~suit) == 0;
+            int low = Integer.numberOfTrailingZeros(types);
+            boolean straight = types >>> low == 0x1F || types == ACE_HIGH;
+            if (straight) {
+                return flush ? 8 : 4;
+            }
+            return flush ? 5 : 0;
+        }
+        int most = 0;
+        for (int t = types; t != 0; t &= t - 1) {
+            most = Math.max(most, Long.bitCount(hand
+                    & TYPE_COLUMN << Integer.numberOfTrailingZeros(t)));
+        }
+        switch (distinct) {
+            case 4:
+                return 1;
+            case 3:
+                return most == 3 ? 3 : 2;
+            default:
+                return most == 4 ? 7 : 6;
+        }
+    }
+
+    /**
+     * Deals rounds on its own deck and tallies them.
+     */
+    private static final class Worker extends Thread {
+
+        /**
+         * Rounds to deal.
+         */
+        private final long rounds;
+
+        /**
+         * Card counts by deal position.
+         */
+        private final long[] positions = new long[DEALT * Deck.SIZE];
+
+        /**
+         * Counts of first-then-second card dealt.
+         */
+        private final long[] pairs = new long[Deck.SIZE * Deck.SIZE];
+
+        /**
+         * Counts of hand category.
+         */
+        private final long[] categories = new long[CATEGORIES.length];
+
+        /**
+         * Create worker.
+         *
+         * @param id
+         *           worker number, for its name
+         * @param r
+         *          rounds to deal
+         */
+        private Worker(final int id, final long r) {
+            super("shuffle-audit-" + id);
+            rounds = r;
+        }
+
+        /**
+         * Thread instructions.
+         */
+        @Override
+        public void run() {
+            Deck deck = new Deck();
+            deck.shuffle();
+            int[] counts = new int[SEATS];
+            Arrays.fill(counts, Table.HAND_SIZE);
+            int[] out = new int[DEALT];
+            for (long r = 0; r < rounds; r++) {
+                if (!deck.dealRound(counts, out, Table.HAND_SIZE)) {
+                    throw new IllegalStateException("Deck ran out");
+                }
+                long dealt = 0;
+                for (int j = 0; j < DEALT; j++) {
+                    positions[j * Deck.SIZE + out[j]]++;
+                    dealt |= 1L << out[j];
+                }
+                pairs[out[0] * Deck.SIZE + out[Table.HAND_SIZE]]++;
+                categories[category(out, (int) (r % SEATS)
+                        * Table.HAND_SIZE)]++;
+                deck.discard(dealt);
+            }
+        }
+    }
+}
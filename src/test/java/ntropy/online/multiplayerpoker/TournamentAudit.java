@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2019 Ryan Castelli
+ * Copyright (C) 2019 Samantha Cole
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package ntropy.online.multiplayerpoker;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Audit of {@link Tournament} seating, for gating releases. Registers and
+ * connects a field of entrants over loopback, starts the tournament, then
+ * knocks out random players one at a time until one is left, timing the
+ * tournament's own work for each elimination in thread CPU time. After
+ * every elimination it checks that:
+ * <ul>
+ * <li>no two tables differ by more than one player;</li>
+ * <li>exactly as many tables are open as the players left need;</li>
+ * <li>the tables between them hold every player left.</li>
+ * </ul>
+ * Fails if any check does, or if an elimination costs
+ * {@link #LIMIT_NS} or more on average; the worst single cost is only
+ * reported, since the first eliminations also pay for class loading.
+ * Exits with status 1 on failure.
+ * Usage: TournamentAudit [entrants] [seed]
+ *
+ * @author NTropy
+ * @version 10.19.2026
+ * @since 10.19.2026
+ */
+public final class TournamentAudit {
+
+    /**
+     * Entrants if not given.
+     */
+    private static final int DEFAULT_ENTRANTS = 2000;
+
+    /**
+     * Seats per table, as the server runs tournaments.
+     */
+    private static final int SEATS = 9;
+
+    /**
+     * Id of the first table.
+     */
+    private static final int FIRST_TABLE = 1000;
+
+    /**
+     * Blind level length; longer than any audit runs.
+     */
+    private static final long LEVEL_MS = 3_600_000;
+
+    /**
+     * Average cost of one elimination at or above which the audit fails,
+     * in nanoseconds.
+     */
+    private static final long LIMIT_NS = 1_000_000;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private TournamentAudit() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *             optional number of entrants and random seed
+     * @throws IOException
+     *             if loopback connections cannot be made
+     * @throws InterruptedException
+     *             if interrupted while waiting for tables
+     */
+    public static void main(final String[] args)
+            throws IOException, InterruptedException {
+        int n = args.length > 0 ? Integer.parseInt(args[0])
+                : DEFAULT_ENTRANTS;
+        Random rnd = new Random(args.length > 1 ? Long.parseLong(args[1])
+                : 1);
+        PokerServer.timer().start();
+        PokerServer.stats().start();
+        TableShards shards = new TableShards(
+                Runtime.getRuntime().availableProcessors());
+        Tournament t = new Tournament(n, SEATS, FIRST_TABLE, LEVEL_MS,
+                shards);
+
+        System.out.println("Connecting " + n + " entrants...");
+        ArrayList<ServerConnection> in = new ArrayList<>(n);
+        ArrayList<Socket> clients = new ArrayList<>(n);
+        try (ServerSocket ss = new ServerSocket(0, n,
+                InetAddress.getLoopbackAddress())) {
+            for (int j = 0; j < n; j++) {
+                clients.add(new Socket(ss.getInetAddress(),
+                        ss.getLocalPort()));
+                ServerConnection c = t.register("audit-" + j, j);
+                c.connect(ss.accept());
+                Table table = c.getTable();
+                table.execute(() -> table.seat(c));
+                in.add(c);
+            }
+        }
+        t.start();
+        boolean pass = check(t);
+
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        long total = 0, worst = 0;
+        int out = 0;
+        while (in.size() > 1) {
+            ServerConnection c = in.remove(rnd.nextInt(in.size()));
+            long start = mx.getCurrentThreadCpuTime();
+            t.eliminated(c);
+            long cost = mx.getCurrentThreadCpuTime() - start;
+            //free the seat as its table would; the tournament ignores the
+            //repeat, and the table runs it before any arrival it queues
+            Table table = c.getTable();
+            table.execute(() -> table.unseat(c));
+            total += cost;
+            worst = Math.max(worst, cost);
+            out++;
+            pass &= check(t);
+        }
+        Thread.sleep(500);
+
+        long mean = total / Math.max(1, out);
+        System.out.printf("%d eliminations, %d moves: mean %.1f us, worst"
+                + " %.1f us of CPU%n", out, t.moves(), mean / 1e3,
+                worst / 1e3);
+        if (mean >= LIMIT_NS) {
+            System.out.println("FAIL  eliminations are too slow");
+            pass = false;
+        }
+        ServerConnection winner = in.get(0);
+        if (t.players() != 1 || winner.getTable().isReaped()) {
+            System.out.println("FAIL  winner's table was not left open");
+            pass = false;
+        }
+        for (Socket s : clients) {
+            s.close();
+        }
+        System.out.println(pass ? "PASS" : "FAIL");
+        System.exit(pass ? 0 : 1);
+    }
+
+    /**
+     * Check seating after a change, printing any failure.
+     *
+     * @param t
+     *          tournament to check
+     * @return true if seating is balanced and complete
+     */
+    private static boolean check(final Tournament t) {
+        int players = t.players();
+        int[] counts = t.tableCounts();
+        int min = Integer.MAX_VALUE, max = 0, sum = 0;
+        for (int count : counts) {
+            min = Math.min(min, count);
+            max = Math.max(max, count);
+            sum += count;
+        }
+        int need = (players + SEATS - 1) / SEATS;
+        if (max - min <= 1 && counts.length == need && sum == players) {
+            return true;
+        }
+        System.out.println("FAIL  " + players + " players, tables: "
+                + Arrays.toString(counts));
+        return false;
+    }
+}